@@ -0,0 +1,99 @@
+package com.reproductormusica.controller;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publica en una ObservableList elementos producidos desde hilos en segundo plano.
+ *
+ * Los elementos se acumulan en una cola concurrente y se agregan con un único
+ * addAll desde el hilo de JavaFX. Solo hay una publicación programada a la vez,
+ * así que todo lo que llega mientras espera su turno sale en el mismo lote: una
+ * importación grande produce unas pocas notificaciones en lugar de una por canción.
+ */
+public class FxListPublisher<T> {
+
+    private final ObservableList<T> target;
+    private final Executor fxExecutor;
+    private final Queue<T> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public FxListPublisher(ObservableList<T> target) {
+        this(target, FxListPublisher::runOnFxThread);
+    }
+
+    /**
+     * @param fxExecutor ejecutor que corre las tareas en el hilo dueño de la lista
+     */
+    public FxListPublisher(ObservableList<T> target, Executor fxExecutor) {
+        this.target = target;
+        this.fxExecutor = fxExecutor;
+    }
+
+    public void add(T item) {
+        pending.add(item);
+        schedulePublish();
+    }
+
+    public void addAll(Collection<? extends T> items) {
+        if (!items.isEmpty()) {
+            pending.addAll(items);
+            schedulePublish();
+        }
+    }
+
+    /**
+     * Ejecuta una modificación de la lista en el hilo de JavaFX, después de publicar
+     * los elementos pendientes para respetar el orden de las operaciones
+     */
+    public void runAfterPending(Runnable action) {
+        fxExecutor.execute(() -> {
+            publishPending();
+            action.run();
+        });
+    }
+
+    private void schedulePublish() {
+        if (scheduled.compareAndSet(false, true)) {
+            fxExecutor.execute(() -> {
+                scheduled.set(false);
+                publishPending();
+            });
+        }
+    }
+
+    private void publishPending() {
+        List<T> batch = new ArrayList<>();
+        T item;
+        while ((item = pending.poll()) != null) {
+            batch.add(item);
+        }
+        if (!batch.isEmpty()) {
+            target.addAll(batch);
+        }
+    }
+
+    /**
+     * Ejecuta en el hilo de JavaFX, o directamente si el toolkit no está iniciado
+     * (por ejemplo en herramientas sin interfaz)
+     */
+    private static void runOnFxThread(Runnable action) {
+        if (Platform.isFxApplicationThread()) {
+            action.run();
+            return;
+        }
+        try {
+            Platform.runLater(action);
+        } catch (IllegalStateException e) {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.reproductormusica.controller;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado observable de una importación en curso.
+ *
+ * Todos los contadores son seguros entre hilos, por lo que la interfaz puede
+ * consultarlos periódicamente y un llamador sin interfaz puede esperar a que
+ * termine con awaitCompletion(). La cancelación y la pausa son cooperativas:
+ * los hilos de la importación las comprueban entre archivo y archivo.
+ */
+public class ImportJob {
+
+    public enum State {
+        RUNNING,
+        PAUSED,
+        CANCELLED,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String description;
+    private final AtomicLong discovered = new AtomicLong();
+    private final AtomicLong parsed = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final long startNanos = System.nanoTime();
+
+    private volatile State state = State.RUNNING;
+    private volatile boolean discoveryComplete;
+    private volatile long endNanos;
+    private volatile String message;
+
+    public ImportJob(String description) {
+        this.description = description;
+    }
+
+    // Progress reporting (called from import threads)
+    void fileDiscovered() { discovered.incrementAndGet(); }
+    void fileParsed() { parsed.incrementAndGet(); }
+    void songsPersisted(int count) { persisted.addAndGet(count); }
+    void fileSkipped() { skipped.incrementAndGet(); }
+    void filesSkipped(int count) { skipped.addAndGet(count); }
+    void fileFailed() { errors.incrementAndGet(); }
+    void filesFailed(int count) { errors.addAndGet(count); }
+
+    /**
+     * Marca que ya se conocen todos los archivos, de modo que el total es definitivo
+     */
+    void discoveryComplete() {
+        discoveryComplete = true;
+    }
+
+    /**
+     * Punto de control entre archivos: espera mientras el trabajo esté en pausa
+     * y lanza CancellationException si se ha cancelado
+     */
+    void checkpoint() throws InterruptedException {
+        synchronized (this) {
+            while (state == State.PAUSED) {
+                wait();
+            }
+        }
+        if (state == State.CANCELLED) {
+            throw new CancellationException("Import cancelled");
+        }
+    }
+
+    void complete(String message) {
+        finish(state == State.CANCELLED ? State.CANCELLED : State.COMPLETED, message);
+    }
+
+    void fail(String message) {
+        finish(State.FAILED, message);
+    }
+
+    private synchronized void finish(State finalState, String message) {
+        if (finished.getCount() == 0) {
+            return;
+        }
+        this.message = message;
+        this.endNanos = System.nanoTime();
+        this.state = finalState;
+        notifyAll();
+        finished.countDown();
+    }
+
+    // Control
+    public synchronized void pause() {
+        if (state == State.RUNNING) {
+            state = State.PAUSED;
+        }
+    }
+
+    public synchronized void resume() {
+        if (state == State.PAUSED) {
+            state = State.RUNNING;
+            notifyAll();
+        }
+    }
+
+    public synchronized void cancel() {
+        if (state == State.RUNNING || state == State.PAUSED) {
+            state = State.CANCELLED;
+            notifyAll();
+        }
+    }
+
+    public boolean isCancelled() {
+        return state == State.CANCELLED;
+    }
+
+    public boolean isFinished() {
+        return finished.getCount() == 0;
+    }
+
+    public void awaitCompletion() throws InterruptedException {
+        finished.await();
+    }
+
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    // Progress
+    public String getDescription() { return description; }
+    public State getState() { return state; }
+    public String getMessage() { return message; }
+    public boolean isDiscoveryComplete() { return discoveryComplete; }
+    public long getDiscovered() { return discovered.get(); }
+    public long getParsed() { return parsed.get(); }
+    public long getPersisted() { return persisted.get(); }
+    public long getSkipped() { return skipped.get(); }
+    public long getErrors() { return errors.get(); }
+
+    public Duration getElapsed() {
+        long end = isFinished() ? endNanos : System.nanoTime();
+        return Duration.ofNanos(end - startNanos);
+    }
+
+    /**
+     * Archivos terminados: guardados, omitidos o fallidos. Un archivo leído pero
+     * aún no guardado no cuenta, así que progreso, ritmo y tiempo restante miden
+     * lo mismo.
+     */
+    public long getCompleted() {
+        return getPersisted() + getSkipped() + getErrors();
+    }
+
+    /**
+     * Archivos terminados (ver getCompleted) por segundo desde el inicio
+     */
+    public double getFilesPerSecond() {
+        double seconds = getElapsed().toNanos() / 1_000_000_000.0;
+        return seconds > 0 ? getCompleted() / seconds : 0;
+    }
+
+    /**
+     * Fracción completada entre 0 y 1, o -1 mientras no se conozca el total
+     */
+    public double getProgress() {
+        if (isFinished()) {
+            return 1.0;
+        }
+        long total = getDiscovered();
+        if (!discoveryComplete || total == 0) {
+            return -1;
+        }
+        return Math.min(1.0, (double) getCompleted() / total);
+    }
+
+    /**
+     * Tiempo restante estimado según el ritmo actual, o null si aún no se puede estimar
+     */
+    public Duration getEstimatedTimeRemaining() {
+        double rate = getFilesPerSecond();
+        if (!discoveryComplete || rate <= 0) {
+            return null;
+        }
+        long remaining = Math.max(0, getDiscovered() - getCompleted());
+        return Duration.ofMillis((long) (remaining / rate * 1000));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d encontrados, %d leídos, %d guardados, %d sin cambios, %d errores (%.1f archivos/s)",
+                             description, getDiscovered(), getParsed(), getPersisted(), getSkipped(), getErrors(),
+                             getFilesPerSecond());
+    }
+}
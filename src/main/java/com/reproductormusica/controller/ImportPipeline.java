@@ -0,0 +1,201 @@
+package com.reproductormusica.controller;
+
+import com.reproductormusica.model.Song;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Pipeline de importación: la extracción de metadatos se reparte entre un
+ * número limitado de hilos, mientras que la entrega de canciones (base de datos
+ * e interfaz) se hace siempre desde un único hilo escritor.
+ *
+ * El número de archivos en vuelo (enviados pero aún no entregados) está acotado,
+ * de modo que submit() se bloquea cuando los hilos o el escritor no dan abasto.
+ * El escritor entrega las canciones en lotes con todo lo que haya disponible,
+ * hasta batchSize, para que el guardado pueda agruparse en transacciones.
+ *
+ * Las lecturas pasan por un IoScheduler, que limita cuántas se hacen a la vez
+ * sobre un mismo dispositivo con independencia del número de hilos.
+ *
+ * El avance se refleja en el ImportJob asociado, que también permite pausar
+ * o cancelar la importación entre archivo y archivo.
+ */
+public class ImportPipeline {
+
+    /**
+     * Destino de los lotes. Devuelve cuántas canciones del lote guardó, que son las
+     * que cuentan como guardadas en el trabajo; de las demás (ya existentes o que no
+     * se pudieron guardar) da cuenta el propio destino. Si lanza una excepción, todo
+     * el lote cuenta como fallido.
+     */
+    public interface Sink {
+        int accept(List<Song> batch);
+    }
+
+    private static final Song END_OF_STREAM = new Song();
+
+    private final ImportJob job;
+    private final Function<File, Song> extractor;
+    private final IoScheduler ioScheduler;
+    private final Sink sink;
+    private final int batchSize;
+    private final ExecutorService workers;
+    private final Semaphore inFlight;
+    private final BlockingQueue<Song> parsed = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    /**
+     * @param job           trabajo en el que se registra el avance
+     * @param parallelism   número de hilos extrayendo metadatos
+     * @param queueCapacity máximo de archivos enviados pendientes de entregar
+     * @param batchSize     máximo de canciones por entrega al destino
+     * @param extractor     función de extracción (se ejecuta en paralelo)
+     * @param sink          destino de cada lote de canciones (se ejecuta en un solo hilo);
+     *                      todo lo entregado cuenta como guardado
+     */
+    public ImportPipeline(ImportJob job, int parallelism, int queueCapacity, int batchSize,
+                          Function<File, Song> extractor, Consumer<List<Song>> sink) {
+        this(job, parallelism, queueCapacity, batchSize, IoScheduler.unlimited(), extractor, batch -> {
+            sink.accept(batch);
+            return batch.size();
+        });
+    }
+
+    /**
+     * @param ioScheduler limita las lecturas simultáneas por dispositivo y directorio
+     * @param sink        destino de cada lote, que informa de cuántas canciones guardó
+     */
+    public ImportPipeline(ImportJob job, int parallelism, int queueCapacity, int batchSize,
+                          IoScheduler ioScheduler, Function<File, Song> extractor, Sink sink) {
+        if (parallelism < 1 || queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("parallelism, queueCapacity and batchSize must be positive");
+        }
+        this.job = job;
+        this.extractor = extractor;
+        this.ioScheduler = ioScheduler;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.inFlight = new Semaphore(queueCapacity);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "import-worker-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.writer = new Thread(this::drain, "import-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Encola un archivo para su extracción. Se bloquea si ya hay demasiados en vuelo
+     * o si el trabajo está en pausa, y lanza CancellationException si se canceló.
+     */
+    public void submit(File file) throws InterruptedException {
+        job.checkpoint();
+        inFlight.acquire();
+        job.fileDiscovered();
+        try {
+            workers.execute(() -> extract(file));
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Espera a que todos los archivos enviados se hayan entregado y libera los hilos
+     */
+    public void finish() throws InterruptedException {
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Keep waiting until every submitted file has been parsed
+            }
+        } finally {
+            parsed.put(END_OF_STREAM);
+            writer.join();
+        }
+    }
+
+    /**
+     * Número de archivos que no se pudieron procesar
+     */
+    public int getErrorCount() {
+        return (int) job.getErrors();
+    }
+
+    public ImportJob getJob() {
+        return job;
+    }
+
+    private void extract(File file) {
+        Song song = null;
+        try {
+            job.checkpoint();
+            song = ioScheduler.read(file, extractor::apply);
+            if (song != null) {
+                job.fileParsed();
+            } else {
+                job.fileFailed();
+            }
+        } catch (CancellationException e) {
+            // Cancelled while queued: the file is simply not read
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            job.fileFailed();
+            System.err.println("Error importing file " + file.getName() + ": " + e.getMessage());
+        }
+
+        if (song != null) {
+            parsed.add(song);
+        } else {
+            inFlight.release();
+        }
+    }
+
+    private void drain() {
+        List<Song> batch = new ArrayList<>(batchSize);
+        boolean endOfStream = false;
+        while (!endOfStream) {
+            try {
+                batch.add(parsed.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            parsed.drainTo(batch, batchSize - 1);
+            
+            int delivered = batch.size();
+            if (batch.remove(END_OF_STREAM)) {
+                endOfStream = true;
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    job.songsPersisted(sink.accept(batch));
+                }
+            } catch (Exception e) {
+                job.filesFailed(batch.size());
+                System.err.println("Error saving " + batch.size() + " songs: " + e.getMessage());
+            } finally {
+                inFlight.release(endOfStream ? delivered - 1 : delivered);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+}
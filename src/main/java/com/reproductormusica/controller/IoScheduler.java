@@ -0,0 +1,155 @@
+package com.reproductormusica.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Reparte las lecturas de archivos de una importación por dispositivo.
+ *
+ * Cada dispositivo (por defecto, el FileStore donde está el archivo: un disco,
+ * una partición o un montaje de red) admite como mucho un número fijo de lecturas
+ * simultáneas, independiente del número de hilos de extracción, para que un disco
+ * mecánico o un NAS no salten de un archivo a otro. Opcionalmente los archivos de
+ * un mismo directorio se leen de uno en uno.
+ */
+public class IoScheduler {
+
+    /**
+     * Lectura de un archivo ejecutada con los permisos de su dispositivo
+     */
+    @FunctionalInterface
+    public interface Read<T> {
+        T run(File file) throws Exception;
+    }
+
+    private static final int DEVICE_CACHE_SIZE = 1024;
+
+    private final int readsPerDevice;
+    private final boolean sequentialDirectories;
+    private final Function<Path, Object> deviceKey;
+    private final Map<Object, Semaphore> devices = new ConcurrentHashMap<>();
+    private final Map<Path, DirectoryLock> directories = new ConcurrentHashMap<>();
+
+    /**
+     * @param readsPerDevice        lecturas simultáneas por dispositivo (0 = sin límite)
+     * @param sequentialDirectories leer de uno en uno los archivos de cada directorio
+     */
+    public IoScheduler(int readsPerDevice, boolean sequentialDirectories) {
+        this(readsPerDevice, sequentialDirectories, fileStoreKey());
+    }
+
+    /**
+     * @param deviceKey devuelve el dispositivo de un directorio; los directorios con
+     *                  la misma clave comparten el límite de lecturas
+     */
+    public IoScheduler(int readsPerDevice, boolean sequentialDirectories, Function<Path, Object> deviceKey) {
+        this.readsPerDevice = readsPerDevice;
+        this.sequentialDirectories = sequentialDirectories;
+        this.deviceKey = deviceKey;
+    }
+
+    /**
+     * Planificador que no limita nada
+     */
+    public static IoScheduler unlimited() {
+        return new IoScheduler(0, false, dir -> dir);
+    }
+
+    /**
+     * Ejecuta la lectura cuando su directorio y su dispositivo lo permiten
+     */
+    public <T> T read(File file, Read<T> read) throws Exception {
+        if (readsPerDevice <= 0 && !sequentialDirectories) {
+            return read.run(file);
+        }
+
+        Path directory = file.getAbsoluteFile().toPath().getParent();
+        DirectoryLock directoryLock = sequentialDirectories ? lockDirectory(directory) : null;
+        try {
+            Semaphore device = readsPerDevice > 0 ? deviceSemaphore(directory) : null;
+            if (device != null) {
+                device.acquire();
+            }
+            try {
+                return read.run(file);
+            } finally {
+                if (device != null) {
+                    device.release();
+                }
+            }
+        } finally {
+            if (directoryLock != null) {
+                unlockDirectory(directory, directoryLock);
+            }
+        }
+    }
+
+    private Semaphore deviceSemaphore(Path directory) {
+        Object key = directory != null ? deviceKey.apply(directory) : null;
+        if (key == null) {
+            key = "";
+        }
+        return devices.computeIfAbsent(key, k -> new Semaphore(readsPerDevice, true));
+    }
+
+    private DirectoryLock lockDirectory(Path directory) throws InterruptedException {
+        DirectoryLock lock = directories.compute(directory, (dir, existing) -> {
+            DirectoryLock l = existing != null ? existing : new DirectoryLock();
+            l.users++;
+            return l;
+        });
+        try {
+            lock.semaphore.acquire();
+        } catch (InterruptedException e) {
+            releaseUser(directory);
+            throw e;
+        }
+        return lock;
+    }
+
+    private void unlockDirectory(Path directory, DirectoryLock lock) {
+        lock.semaphore.release();
+        releaseUser(directory);
+    }
+
+    // Forget a directory once nobody is reading or waiting on it
+    private void releaseUser(Path directory) {
+        directories.computeIfPresent(directory, (dir, lock) -> --lock.users == 0 ? null : lock);
+    }
+
+    private static final class DirectoryLock {
+        // Fair, so waiting reads go roughly in the order they arrived
+        final Semaphore semaphore = new Semaphore(1, true);
+        int users;
+    }
+
+    /**
+     * Clave de dispositivo basada en el FileStore del directorio, recordando los
+     * últimos directorios consultados para no repetir la llamada por archivo
+     */
+    public static Function<Path, Object> fileStoreKey() {
+        Map<Path, Object> cache = Collections.synchronizedMap(new LinkedHashMap<Path, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Object> eldest) {
+                return size() > DEVICE_CACHE_SIZE;
+            }
+        });
+        return directory -> cache.computeIfAbsent(directory, dir -> {
+            try {
+                FileStore store = Files.getFileStore(dir);
+                return store.name() + "|" + store.type();
+            } catch (IOException e) {
+                return dir.getRoot() != null ? dir.getRoot() : "";
+            }
+        });
+    }
+}
@@ -0,0 +1,160 @@
+package com.reproductormusica.controller;
+
+import com.reproductormusica.model.Song;
+import com.reproductormusica.utils.AppConfig;
+import com.reproductormusica.utils.AudioFileWalker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compara una carpeta con las canciones ya conocidas usando tamaño, fecha de
+ * modificación e inodo, para volver a leer solo lo que ha cambiado.
+ *
+ * Los archivos nuevos y modificados se entregan durante el recorrido; los
+ * renombrados y los desaparecidos se devuelven en el resultado para que el
+ * llamador los aplique cuando la importación haya terminado.
+ */
+public class LibraryRescanner {
+
+    /**
+     * Acciones que el recorrido dispara para cada archivo encontrado
+     */
+    public interface Listener {
+        void fileAdded(File file) throws InterruptedException;
+        void fileChanged(File file, Song existing) throws InterruptedException;
+        
+        /**
+         * Archivo sin cambios o movido, que no hace falta volver a leer
+         */
+        default void fileSkipped(File file) throws InterruptedException {}
+    }
+
+    /**
+     * Resultado de un reescaneo
+     */
+    public static class Result {
+        private final Map<Song, Path> moved = new HashMap<>();
+        private final List<Song> removed = new ArrayList<>();
+        private int unchanged;
+        private int changed;
+        private int added;
+
+        public Map<Song, Path> getMoved() { return moved; }
+        public List<Song> getRemoved() { return removed; }
+        public int getUnchanged() { return unchanged; }
+        public int getChanged() { return changed; }
+        public int getAdded() { return added; }
+
+        @Override
+        public String toString() {
+            return String.format("%d sin cambios, %d modificadas, %d nuevas, %d movidas, %d eliminadas",
+                                 unchanged, changed, added, moved.size(), removed.size());
+        }
+    }
+
+    private final Map<String, Song> songsByPath = new HashMap<>();
+    private final Map<String, Song> songsByInode = new HashMap<>();
+    private final boolean recursive;
+
+    /**
+     * Reescaneo que entra en las subcarpetas según library.scan.subdirectories,
+     * como la importación
+     *
+     * @param knownSongs canciones de la biblioteca (todas, para detectar movimientos entre carpetas)
+     */
+    public LibraryRescanner(Collection<Song> knownSongs) {
+        this(knownSongs, AppConfig.getBoolean("library.scan.subdirectories", true));
+    }
+
+    /**
+     * @param knownSongs canciones de la biblioteca (todas, para detectar movimientos entre carpetas)
+     * @param recursive  si se recorren las subcarpetas; si no, las canciones que
+     *                   estén en ellas no se dan por eliminadas
+     */
+    public LibraryRescanner(Collection<Song> knownSongs, boolean recursive) {
+        this.recursive = recursive;
+        for (Song song : knownSongs) {
+            if (song.getFilePath() != null) {
+                songsByPath.put(song.getFilePath(), song);
+            }
+            if (song.getFileInode() != null) {
+                songsByInode.put(song.getFileInode(), song);
+            }
+        }
+    }
+
+    public Result rescan(Path root, Listener listener) throws IOException, InterruptedException {
+        Path absoluteRoot = root.toAbsolutePath();
+        Result result = new Result();
+
+        // Songs the walk should see that have not been seen yet; whatever is left at the end vanished
+        Map<String, Song> pending = new HashMap<>();
+        for (Map.Entry<String, Song> entry : songsByPath.entrySet()) {
+            Path path = Paths.get(entry.getKey());
+            if (recursive ? path.startsWith(absoluteRoot) : absoluteRoot.equals(path.getParent())) {
+                pending.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        new AudioFileWalker(recursive).walk(absoluteRoot, (file, attrs) -> {
+            String path = file.toAbsolutePath().toString();
+            Song existing = pending.remove(path);
+            if (existing == null) {
+                existing = songsByPath.get(path);
+            }
+
+            if (existing != null) {
+                if (existing.isFileUnchanged(attrs.size(), attrs.lastModifiedTime().toMillis())) {
+                    result.unchanged++;
+                    listener.fileSkipped(file.toFile());
+                } else {
+                    result.changed++;
+                    listener.fileChanged(file.toFile(), existing);
+                }
+                return;
+            }
+
+            Song movedSong = findMovedSong(attrs);
+            if (movedSong != null) {
+                pending.remove(movedSong.getFilePath());
+                result.moved.put(movedSong, file.toAbsolutePath());
+                listener.fileSkipped(file.toFile());
+            } else {
+                result.added++;
+                listener.fileAdded(file.toFile());
+            }
+        });
+
+        result.removed.addAll(pending.values());
+        return result;
+    }
+
+    /**
+     * Busca una canción conocida con el mismo inodo, tamaño y fecha cuyo archivo original ya no existe.
+     * Comparar tamaño y fecha evita confundir un archivo nuevo con uno borrado cuyo inodo se reutilizó.
+     */
+    private Song findMovedSong(BasicFileAttributes attrs) {
+        if (attrs.fileKey() == null) {
+            return null;
+        }
+        Song candidate = songsByInode.get(attrs.fileKey().toString());
+        if (candidate == null || !candidate.isFileUnchanged(attrs.size(), attrs.lastModifiedTime().toMillis())) {
+            return null;
+        }
+        if (Files.exists(Paths.get(candidate.getFilePath()))) {
+            return null;
+        }
+        songsByInode.remove(candidate.getFileInode());
+        return candidate;
+    }
+}
@@ -2,14 +2,40 @@ package com.reproductormusica.controller;
 
 import com.reproductormusica.audio.AudioPlayer;
 import com.reproductormusica.model.*;
+import com.reproductormusica.utils.AppConfig;
+import com.reproductormusica.utils.AudioFileWalker;
+import com.reproductormusica.utils.DatabaseBackup;
 import com.reproductormusica.utils.DatabaseManager;
+import com.reproductormusica.utils.FolderWatcher;
+import com.reproductormusica.utils.ImportJournal;
+import com.reproductormusica.utils.MetadataExtractor;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Controlador principal del reproductor de música
@@ -18,6 +44,16 @@ public class MainController {
     
     private AudioPlayer audioPlayer;
     private DatabaseManager databaseManager;
+    private PlaylistWriter playlistWriter;
+    private volatile FolderWatcher folderWatcher;
+    private DatabaseBackup databaseBackup;
+    
+    // Imports run one at a time on this thread so they never compete for the database writer
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "import-job");
+        t.setDaemon(true);
+        return t;
+    });
     
     // Observable properties
     private final ObjectProperty<Song> currentSong = new SimpleObjectProperty<>();
@@ -25,6 +61,7 @@ public class MainController {
     private final DoubleProperty volume = new SimpleDoubleProperty(0.5);
     private final DoubleProperty progress = new SimpleDoubleProperty(0.0);
     private final BooleanProperty shuffle = new SimpleBooleanProperty(false);
+    private final BooleanProperty libraryReady = new SimpleBooleanProperty(false);
     private final ObjectProperty<RepeatMode> repeatMode = new SimpleObjectProperty<>(RepeatMode.OFF);
     private final ObjectProperty<Playlist> currentPlaylist = new SimpleObjectProperty<>();
     
@@ -33,6 +70,24 @@ public class MainController {
     private final ObservableList<Playlist> playlists = FXCollections.observableArrayList();
     private final ObservableList<Song> currentQueue = FXCollections.observableArrayList();
     
+    // Shared by every import so concurrent jobs respect the same per-device read limits
+    private final IoScheduler ioScheduler = new IoScheduler(
+        AppConfig.getInt("import.io.reads.per.device", 4),
+        AppConfig.getBoolean("import.io.sequential.directories", false));
+    
+    // Whether imports, rescans and folder watching enter subfolders
+    private final boolean scanSubdirectories = AppConfig.getBoolean("library.scan.subdirectories", true);
+    
+    // Songs found by background imports reach the library in batches on the FX thread
+    private final FxListPublisher<Song> libraryPublisher = new FxListPublisher<>(library);
+    
+    // O(1) lookups over the library, kept in sync with the library list
+    private final Map<String, Song> songsById = new ConcurrentHashMap<>();
+    private final Map<String, Song> songsByPath = new ConcurrentHashMap<>();
+    
+    // Completed once the library pages loaded in the background have all been indexed
+    private final CompletableFuture<Void> libraryLoaded = new CompletableFuture<>();
+    
     public MainController() {
         try {
             System.out.println("Inicializando AudioPlayer...");
@@ -44,6 +99,12 @@ public class MainController {
             // Initialize database
             System.out.println("Configurando base de datos...");
             databaseManager.initialize();
+            createPlaylistWriter();
+            
+            if (AppConfig.getBoolean("database.backup.enabled", true) && !databaseManager.isInMemory()) {
+                databaseBackup = DatabaseBackup.fromConfig(databaseManager.getDatabasePath());
+                databaseBackup.start();
+            }
             
             // Load data
             System.out.println("Cargando biblioteca musical...");
@@ -52,6 +113,14 @@ public class MainController {
             System.out.println("Cargando playlists...");
             loadPlaylists();
             
+            if (AppConfig.getBoolean("library.watch.folders", true)) {
+                // Changes are compared against the library, so watching starts once it is complete
+                libraryLoaded.thenRun(() -> {
+                    System.out.println("Vigilando carpetas de la biblioteca...");
+                    startFolderWatcher();
+                });
+            }
+            
             // Setup audio player listeners
             System.out.println("Configurando listeners de audio...");
             setupAudioPlayerListeners();
@@ -68,9 +137,21 @@ public class MainController {
             if (this.databaseManager == null) {
                 this.databaseManager = new DatabaseManager();
             }
+            if (this.playlistWriter == null) {
+                createPlaylistWriter();
+            }
         }
     }
     
+    /**
+     * Las playlists se guardan en diferido: los cambios seguidos sobre la misma
+     * playlist se agrupan en una sola escritura fuera del hilo de JavaFX
+     */
+    private void createPlaylistWriter() {
+        playlistWriter = new PlaylistWriter(databaseManager::savePlaylist, databaseManager::deletePlaylist,
+                                            AppConfig.getLong("playlist.save.interval.ms", 1000));
+    }
+    
     private void setupAudioPlayerListeners() {
         if (audioPlayer != null) {
             audioPlayer.stateProperty().addListener((obs, oldState, newState) -> {
@@ -295,52 +376,702 @@ public class MainController {
     }
     
     // Library management
+    
+    /**
+     * Tarea de importación ejecutada en segundo plano; devuelve un resumen para el usuario
+     */
+    @FunctionalInterface
+    private interface ImportTask {
+        String run(ImportJob job) throws Exception;
+    }
+    
+    /**
+     * Importa archivos en segundo plano. El trabajo devuelto permite seguir el avance,
+     * pausar o cancelar, y esperar a que termine.
+     */
+    public ImportJob startImport(List<File> files) {
+        return runImportJob(new ImportJob("Importación de archivos"), job -> {
+            importMusicFiles(files, job);
+            return job.getParsed() + " canciones importadas";
+        });
+    }
+    
+    public ImportJob startFolderImport(File directory) {
+        return runImportJob(new ImportJob("Importación de " + directory.getName()), job -> {
+            importMusicFolder(directory, job);
+            return job.getParsed() + " canciones importadas";
+        });
+    }
+    
+    public ImportJob startRescan(File directory) {
+        return runImportJob(new ImportJob("Reescaneo de " + directory.getName()), job -> {
+            LibraryRescanner.Result result = rescanFolder(directory, job);
+            return result != null ? result.toString() : null;
+        });
+    }
+    
+    private ImportJob runImportJob(ImportJob job, ImportTask task) {
+        importExecutor.execute(() -> {
+            try {
+                job.complete(task.run(job));
+            } catch (CancellationException e) {
+                job.complete("Importación cancelada");
+            } catch (Exception e) {
+                e.printStackTrace();
+                job.fail(e.getMessage());
+            }
+            System.out.println(job);
+        });
+        return job;
+    }
+    
     public void importMusicFiles(List<File> files) {
+        importMusicFiles(files, new ImportJob("Importación de archivos"));
+    }
+    
+    private void importMusicFiles(List<File> files, ImportJob job) {
         if (files == null || files.isEmpty()) {
             return;
         }
         
+        List<File> audioFiles = new ArrayList<>();
         for (File file : files) {
+            if (file.exists() && file.isFile() && MetadataExtractor.isSupportedAudioFile(file)) {
+                audioFiles.add(file);
+            }
+        }
+        // Read directory by directory instead of in selection order
+        audioFiles.sort(Comparator.comparing((File file) -> String.valueOf(file.getAbsoluteFile().getParent()))
+                                  .thenComparing(File::getName));
+        List<String> paths = audioFiles.stream().map(File::getAbsolutePath).collect(Collectors.toList());
+        ImportJournal journal = openJournal(ImportJournal.Kind.FILES, paths);
+        importMusicFiles(audioFiles, job, journal, Collections.emptySet());
+    }
+    
+    /**
+     * Importa los archivos indicados salvo los que ya constan como guardados en el diario
+     */
+    private void importMusicFiles(List<File> files, ImportJob job, ImportJournal journal, Set<String> completed) {
+        ImportPipeline pipeline = createImportPipeline(job, journal);
+        boolean finished = false;
+        try {
+            for (File file : files) {
+                if (completed.contains(file.getAbsolutePath())) {
+                    skipCompletedFile(job);
+                } else {
+                    pipeline.submit(file);
+                }
+            }
+            finished = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            job.discoveryComplete();
+            finishImport(pipeline);
+            closeJournal(journal, finished || job.isCancelled());
+        }
+    }
+    
+    /**
+     * Importa una carpeta, enviando cada archivo al pipeline según se descubre.
+     * Devuelve el número de archivos de audio encontrados.
+     */
+    public long importMusicFolder(File directory) throws IOException {
+        return importMusicFolder(directory, new ImportJob("Importación de carpeta"));
+    }
+    
+    private long importMusicFolder(File directory, ImportJob job) throws IOException {
+        if (directory == null || !directory.isDirectory()) {
+            return 0;
+        }
+        
+        registerLibraryFolder(directory);
+        ImportJournal journal = openJournal(ImportJournal.Kind.FOLDER,
+                                            Collections.singletonList(directory.getAbsolutePath()));
+        return importMusicFolder(directory, job, journal, Collections.emptySet());
+    }
+    
+    private long importMusicFolder(File directory, ImportJob job, ImportJournal journal,
+                                   Set<String> completed) throws IOException {
+        ImportPipeline pipeline = createImportPipeline(job, journal);
+        boolean finished = false;
+        try {
+            new AudioFileWalker().walk(directory.toPath(), (path, attrs) -> {
+                File file = path.toFile();
+                if (completed.contains(file.getAbsolutePath())) {
+                    skipCompletedFile(job);
+                } else {
+                    pipeline.submit(file);
+                }
+            });
+            finished = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            job.discoveryComplete();
+            finishImport(pipeline);
+            closeJournal(journal, finished || job.isCancelled());
+        }
+        return job.getDiscovered();
+    }
+    
+    /**
+     * Guarda las letras de una canción en el hilo de las importaciones, como el resto
+     * de escrituras de la biblioteca. El resultado se completa cuando están guardadas.
+     */
+    public CompletableFuture<Void> saveSongLyrics(Song song, String lyrics) {
+        return CompletableFuture.runAsync(() -> databaseManager.updateSongLyrics(song.getId(), lyrics),
+                                          importExecutor);
+    }
+    
+    /**
+     * Retoma las importaciones que quedaron a medias en la última ejecución, sin volver
+     * a leer los archivos de los lotes que ya se habían guardado. Los diarios se leen en
+     * el hilo de las importaciones; el resultado se completa con los trabajos retomados.
+     */
+    public CompletableFuture<List<ImportJob>> resumeInterruptedImports() {
+        return CompletableFuture.supplyAsync(this::resumePendingImports, importExecutor);
+    }
+    
+    private List<ImportJob> resumePendingImports() {
+        List<ImportJob> jobs = new ArrayList<>();
+        for (ImportJournal.Pending pending : ImportJournal.findPending(getJournalDirectory())) {
+            List<String> sources = pending.getSources();
+            System.out.println("Retomando importación interrumpida (" + pending.getCompleted().size() +
+                               " archivos ya guardados en " + pending.getCommittedBatches() + " lotes)");
+            
+            ImportJournal journal;
             try {
-                if (file.exists() && file.isFile() && 
-                    com.reproductormusica.utils.MetadataExtractor.isSupportedAudioFile(file)) {
-                    
-                    // Extract metadata using MetadataExtractor
-                    Song song = com.reproductormusica.utils.MetadataExtractor.extractMetadata(file);
-                    
-                    if (song != null) {
-                        addSongToLibrary(song);
-                        System.out.println("Imported: " + song.getTitle() + " by " + song.getArtist());
+                journal = ImportJournal.resume(pending);
+            } catch (IOException e) {
+                System.err.println("No se pudo retomar " + pending.getFile() + ": " + e.getMessage());
+                pending.discard();
+                continue;
+            }
+            
+            if (pending.getKind() == ImportJournal.Kind.FOLDER) {
+                File directory = new File(sources.get(0));
+                jobs.add(runImportJob(new ImportJob("Reanudación de " + directory.getName()), job -> {
+                    if (!directory.isDirectory()) {
+                        journal.finish();
+                        return "La carpeta ya no existe";
                     }
-                }
-            } catch (Exception e) {
-                System.err.println("Error importing file " + file.getName() + ": " + e.getMessage());
-                e.printStackTrace();
+                    importMusicFolder(directory, job, journal, pending.getCompleted());
+                    return job.getParsed() + " canciones importadas";
+                }));
+            } else {
+                jobs.add(runImportJob(new ImportJob("Reanudación de importación de archivos"), job -> {
+                    List<File> files = sources.stream()
+                        .map(File::new)
+                        .filter(File::isFile)
+                        .collect(Collectors.toList());
+                    importMusicFiles(files, job, journal, pending.getCompleted());
+                    return job.getParsed() + " canciones importadas";
+                }));
             }
         }
+        return jobs;
     }
     
-    public void addSongToLibrary(Song song) {
-        if (!library.contains(song)) {
-            library.add(song);
-            databaseManager.saveSong(song);
+    private void skipCompletedFile(ImportJob job) throws InterruptedException {
+        job.checkpoint();
+        job.fileDiscovered();
+        job.fileSkipped();
+    }
+    
+    private Path getJournalDirectory() {
+        return Paths.get(databaseManager.getDatabasePath() + "-imports");
+    }
+    
+    /**
+     * Crea el diario de la importación; si no se puede, la importación sigue sin él
+     */
+    private ImportJournal openJournal(ImportJournal.Kind kind, List<String> sources) {
+        if (databaseManager.isInMemory()) {
+            return null; // Nothing to resume once an in-memory library is gone
+        }
+        try {
+            return ImportJournal.create(getJournalDirectory(), kind, sources);
+        } catch (IOException e) {
+            System.err.println("No se pudo crear el diario de importación: " + e.getMessage());
+            return null;
         }
     }
     
-    public void removeSongFromLibrary(Song song) {
-        library.remove(song);
+    /**
+     * Borra el diario si la importación terminó o se canceló; si no, lo deja para retomarla
+     */
+    private void closeJournal(ImportJournal journal, boolean done) {
+        if (journal == null) {
+            return;
+        }
+        if (done) {
+            journal.finish();
+        } else {
+            journal.close();
+        }
+    }
+    
+    /**
+     * Reescanea una carpeta ya importada: omite los archivos sin cambios de tamaño
+     * ni fecha, vuelve a leer los modificados, detecta los movidos o renombrados
+     * y elimina de la biblioteca los que ya no existen.
+     */
+    public LibraryRescanner.Result rescanFolder(File directory) throws IOException {
+        return rescanFolder(directory, new ImportJob("Reescaneo de carpeta"));
+    }
+    
+    private LibraryRescanner.Result rescanFolder(File directory, ImportJob job) throws IOException {
+        if (directory == null || !directory.isDirectory()) {
+            return null;
+        }
         
-        // Also remove from current queue if present
-        currentQueue.remove(song);
+        registerLibraryFolder(directory);
+        // The index, not the FX list: it is safe to read here and already has the songs still being published
+        LibraryRescanner rescanner = new LibraryRescanner(new ArrayList<>(songsByPath.values()));
+        Map<String, Song> changedSongs = new ConcurrentHashMap<>();
+        ImportPipeline pipeline = createSyncPipeline(job, changedSongs);
         
-        // If this is the currently playing song, stop playback
-        if (currentSong.get() != null && currentSong.get().equals(song)) {
-            stop();
-            currentSong.set(null);
+        LibraryRescanner.Result result;
+        try {
+            result = rescanner.rescan(directory.toPath(), new LibraryRescanner.Listener() {
+                @Override
+                public void fileAdded(File file) throws InterruptedException {
+                    pipeline.submit(file);
+                }
+                
+                @Override
+                public void fileChanged(File file, Song existing) throws InterruptedException {
+                    changedSongs.put(file.getAbsolutePath(), existing);
+                    pipeline.submit(file);
+                }
+                
+                @Override
+                public void fileSkipped(File file) throws InterruptedException {
+                    job.checkpoint();
+                    job.fileDiscovered();
+                    job.fileSkipped();
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            job.discoveryComplete();
+            finishImport(pipeline);
         }
         
-        // Delete from database
-        databaseManager.deleteSong(song.getId());
+        // Moves and removals are applied once the pipeline's writer has finished
+        result.getMoved().forEach((song, newPath) -> moveSongFile(song, newPath.toString()));
+        libraryPublisher.runAfterPending(() -> removeSongsFromLibrary(result.getRemoved()));
+        
+        System.out.println("Reescaneo de " + directory + ": " + result);
+        return result;
+    }
+    
+    /**
+     * Aplica los cambios detectados por el vigilante de carpetas: lee solo los archivos
+     * nuevos o modificados, conserva la identidad de los movidos y elimina los borrados
+     */
+    private void applyFileChanges(Set<Path> updated, Set<Path> deleted) {
+        // Songs whose file (or folder) was deleted
+        Map<String, Song> deletedSongs = new HashMap<>();
+        for (Path path : deleted) {
+            String deletedPath = path.toAbsolutePath().toString();
+            Song song = songsByPath.get(deletedPath);
+            if (song != null) {
+                deletedSongs.put(deletedPath, song);
+            } else {
+                String prefix = deletedPath + File.separator;
+                songsByPath.forEach((songPath, s) -> {
+                    if (songPath.startsWith(prefix)) {
+                        deletedSongs.put(songPath, s);
+                    }
+                });
+            }
+        }
+        Map<String, Song> deletedByInode = new HashMap<>();
+        for (Song song : deletedSongs.values()) {
+            if (song.getFileInode() != null) {
+                deletedByInode.put(song.getFileInode(), song);
+            }
+        }
+        
+        // Without subfolders only the files directly inside a library folder count
+        Set<Path> roots = new HashSet<>();
+        if (!scanSubdirectories) {
+            for (String folder : databaseManager.getLibraryFolders()) {
+                roots.add(Paths.get(folder).toAbsolutePath());
+            }
+        }
+        
+        Map<String, Song> changedSongs = new ConcurrentHashMap<>();
+        ImportPipeline pipeline = createSyncPipeline(new ImportJob("Cambios en carpetas"), changedSongs);
+        int submitted = 0;
+        try {
+            for (Path path : updated) {
+                if (!MetadataExtractor.isSupportedAudioFileName(path.getFileName().toString())) {
+                    continue;
+                }
+                if (!scanSubdirectories && !roots.contains(path.toAbsolutePath().getParent())) {
+                    continue;
+                }
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue; // Already gone again
+                }
+                if (!attrs.isRegularFile()) {
+                    continue;
+                }
+                
+                String filePath = path.toAbsolutePath().toString();
+                long mtime = attrs.lastModifiedTime().toMillis();
+                Song existing = songsByPath.get(filePath);
+                Song moved = attrs.fileKey() != null ? deletedByInode.get(attrs.fileKey().toString()) : null;
+                
+                if (existing != null && existing.isFileUnchanged(attrs.size(), mtime)) {
+                    continue;
+                } else if (existing == null && moved != null && moved.isFileUnchanged(attrs.size(), mtime)) {
+                    // Rename or move: same file, new path
+                    deletedSongs.remove(moved.getFilePath());
+                    moveSongFile(moved, filePath);
+                    continue;
+                }
+                
+                if (existing != null) {
+                    changedSongs.put(filePath, existing);
+                }
+                pipeline.submit(path.toFile());
+                submitted++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finishImport(pipeline);
+        }
+        
+        List<Song> removedSongs = new ArrayList<>(deletedSongs.values());
+        libraryPublisher.runAfterPending(() -> removeSongsFromLibrary(removedSongs));
+        System.out.println("Cambios en carpetas aplicados: " + submitted + " leídas, " +
+                           deletedSongs.size() + " eliminadas");
+    }
+    
+    /**
+     * Registra una carpeta como raíz de la biblioteca y la empieza a vigilar
+     */
+    private void registerLibraryFolder(File directory) {
+        databaseManager.addLibraryFolder(directory.getAbsolutePath());
+        if (folderWatcher != null) {
+            try {
+                folderWatcher.watch(directory.toPath(), scanSubdirectories);
+            } catch (IOException e) {
+                System.err.println("No se pudo vigilar " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Vigila todas las carpetas de la biblioteca. Una carpeta que no se puede vigilar
+     * no impide vigilar las demás.
+     */
+    private void startFolderWatcher() {
+        FolderWatcher watcher;
+        try {
+            watcher = new FolderWatcher(createFolderListener());
+        } catch (IOException e) {
+            System.err.println("No se pudo iniciar la vigilancia de carpetas: " + e.getMessage());
+            return;
+        }
+        
+        int watched = 0;
+        for (String folder : databaseManager.getLibraryFolders()) {
+            File directory = new File(folder);
+            if (!directory.isDirectory()) {
+                continue;
+            }
+            try {
+                watcher.watch(directory.toPath(), scanSubdirectories);
+                watched++;
+            } catch (IOException e) {
+                System.err.println("No se pudo vigilar " + directory + ": " + e.getMessage());
+            }
+        }
+        folderWatcher = watcher;
+        System.out.println("Vigilando " + watched + " carpetas");
+    }
+    
+    /**
+     * Los cambios de las carpetas se aplican en el hilo de las importaciones, como
+     * cualquier otra importación, y no en los hilos del vigilante: así nunca
+     * coinciden con otra importación y el vigilante sigue recibiendo eventos
+     */
+    FolderWatcher.Listener createFolderListener() {
+        return new FolderWatcher.Listener() {
+            @Override
+            public void onChanges(Set<Path> updated, Set<Path> deleted) {
+                runOnImportThread(() -> applyFileChanges(updated, deleted));
+            }
+            
+            @Override
+            public void onOverflow(Path root) {
+                runOnImportThread(() -> {
+                    try {
+                        rescanFolder(root.toFile());
+                    } catch (IOException e) {
+                        System.err.println("Error reescaneando " + root + ": " + e.getMessage());
+                    }
+                });
+            }
+        };
+    }
+    
+    private void runOnImportThread(Runnable task) {
+        try {
+            importExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the changes are picked up by the next rescan
+        }
+    }
+    
+    /**
+     * Sustituye canciones por sus versiones releídas, que ya tienen su id y ya están
+     * guardadas en la base de datos. La biblioteca se recorre una vez y cambia con un
+     * solo aviso, sea cual sea el número de canciones.
+     *
+     * @param replacements versión releída de cada canción sustituida
+     */
+    private void replaceSongsInLibrary(Map<Song, Song> replacements) {
+        replacements.forEach((existing, updated) -> {
+            unindexSong(existing);
+            indexSong(updated);
+        });
+        libraryPublisher.runAfterPending(() -> {
+            // Songs are equal by id, which the reread version keeps
+            Map<Song, Song> remaining = new HashMap<>(replacements);
+            List<Song> songs = new ArrayList<>(library);
+            for (int i = 0; i < songs.size() && !remaining.isEmpty(); i++) {
+                Song updated = remaining.remove(songs.get(i));
+                if (updated != null) {
+                    songs.set(i, updated);
+                }
+            }
+            songs.addAll(remaining.values());
+            library.setAll(songs);
+        });
+    }
+    
+    /**
+     * Crea el pipeline de importación: la extracción de metadatos se ejecuta en paralelo
+     * y el guardado en un único hilo escritor
+     */
+    private ImportPipeline createImportPipeline(ImportJob job, ImportJournal journal) {
+        return createImportPipeline(job, songs -> {
+            List<Song> newSongs = selectNewSongs(songs);
+            int saved = saveNewSongs(newSongs);
+            job.filesSkipped(songs.size() - newSongs.size());
+            job.filesFailed(newSongs.size() - saved);
+            System.out.println("Imported " + saved + " songs");
+            
+            // Only batches fully committed to the database count as done if the import is resumed
+            if (journal != null && saved == newSongs.size()) {
+                try {
+                    journal.recordBatch(songs.stream().map(Song::getFilePath).collect(Collectors.toList()));
+                } catch (IOException e) {
+                    System.err.println("Error escribiendo el diario de importación: " + e.getMessage());
+                }
+            }
+            return saved;
+        });
+    }
+    
+    /**
+     * Pipeline que sustituye las canciones indicadas en changedSongs (por ruta)
+     * y agrega el resto como nuevas. Las sustituidas se guardan primero y solo las
+     * confirmadas reemplazan a las de la biblioteca.
+     */
+    private ImportPipeline createSyncPipeline(ImportJob job, Map<String, Song> changedSongs) {
+        return createImportPipeline(job, songs -> {
+            List<Song> updated = new ArrayList<>();
+            Map<String, Song> existingById = new HashMap<>();
+            List<Song> added = new ArrayList<>();
+            for (Song song : songs) {
+                Song existing = changedSongs.remove(song.getFilePath());
+                if (existing != null) {
+                    // The reread song keeps the stored one's id, so saving it updates that row;
+                    // its lyrics stay in song_lyrics, which is keyed by that id
+                    song.setId(existing.getId());
+                    existingById.put(song.getId(), existing);
+                    updated.add(song);
+                } else {
+                    added.add(song);
+                }
+            }
+            int savedUpdates = updated.isEmpty() ? 0 : databaseManager.saveSongs(updated, committed -> {
+                Map<Song, Song> replacements = new HashMap<>();
+                for (Song song : committed) {
+                    replacements.put(existingById.get(song.getId()), song);
+                }
+                replaceSongsInLibrary(replacements);
+            });
+            
+            List<Song> newSongs = selectNewSongs(added);
+            int savedNew = saveNewSongs(newSongs);
+            job.filesSkipped(added.size() - newSongs.size());
+            job.filesFailed(updated.size() - savedUpdates + newSongs.size() - savedNew);
+            return savedUpdates + savedNew;
+        });
+    }
+    
+    private ImportPipeline createImportPipeline(ImportJob job, ImportPipeline.Sink sink) {
+        int batchSize = AppConfig.getInt("database.batch.size", 500);
+        return new ImportPipeline(
+            job,
+            getImportParallelism(),
+            Math.max(AppConfig.getInt("import.queue.capacity", 1024), batchSize),
+            batchSize,
+            ioScheduler,
+            MetadataExtractor::extractMetadata,
+            sink);
+    }
+    
+    private void finishImport(ImportPipeline pipeline) {
+        try {
+            pipeline.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Número de hilos para la extracción de metadatos (0 = uno por núcleo)
+     */
+    private int getImportParallelism() {
+        int parallelism = AppConfig.getInt("import.parallelism", 0);
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+    
+    public void addSongToLibrary(Song song) {
+        addSongsToLibrary(Collections.singletonList(song));
+    }
+    
+    /**
+     * Agrega a la biblioteca las canciones que aún no estén en ella y las guarda
+     * en la base de datos en lote. Devuelve el número de canciones agregadas.
+     */
+    public int addSongsToLibrary(List<Song> songs) {
+        return saveNewSongs(selectNewSongs(songs));
+    }
+    
+    /**
+     * Canciones que aún no están en la biblioteca (ni repetidas en la lista), sin
+     * indexarlas: se indexan al guardarlas con saveNewSongs. El id derivado de la
+     * ruta puede pertenecer ya a otra canción si su archivo se movió desde esa ruta;
+     * entonces la nueva recibe un id propio, para no sobrescribir la fila de la
+     * movida al guardarla.
+     */
+    private List<Song> selectNewSongs(List<Song> songs) {
+        List<Song> newSongs = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Song song : songs) {
+            String key = song.getFilePath() != null ? song.getFilePath() : song.getId();
+            if (isInLibrary(song) || !seen.add(key)) {
+                continue;
+            }
+            if (songsById.containsKey(song.getId())) {
+                song.setId(UUID.randomUUID().toString());
+            }
+            newSongs.add(song);
+        }
+        return newSongs;
+    }
+    
+    /**
+     * Guarda las canciones nuevas y solo entonces las indexa y las publica: una
+     * canción que no llegó a la base de datos no queda en la biblioteca, y la
+     * siguiente importación del archivo lo vuelve a intentar. Devuelve cuántas se
+     * guardaron.
+     */
+    private int saveNewSongs(List<Song> newSongs) {
+        if (newSongs.isEmpty()) {
+            return 0;
+        }
+        List<Song> saved = new ArrayList<>();
+        databaseManager.saveSongs(newSongs, committed -> {
+            committed.forEach(this::indexSong);
+            saved.addAll(committed);
+        });
+        libraryPublisher.addAll(saved);
+        return saved.size();
+    }
+    
+    /**
+     * Indexa y devuelve las canciones, ya guardadas, que aún no estaban en la biblioteca
+     */
+    private List<Song> indexNewSongs(List<Song> songs) {
+        List<Song> newSongs = new ArrayList<>();
+        for (Song song : songs) {
+            if (indexIfNew(song)) {
+                newSongs.add(song);
+            }
+        }
+        return newSongs;
+    }
+    
+    /**
+     * Indexa la canción, ya guardada, si aún no está en la biblioteca y devuelve si
+     * la indexó
+     */
+    private boolean indexIfNew(Song song) {
+        if (isInLibrary(song)) {
+            return false;
+        }
+        indexSong(song);
+        return true;
+    }
+    
+    /**
+     * Indica si la canción ya está en la biblioteca: por ruta de archivo, o por id
+     * si no tiene ruta
+     */
+    public boolean isInLibrary(Song song) {
+        if (song.getFilePath() != null) {
+            return songsByPath.containsKey(song.getFilePath());
+        }
+        return songsById.containsKey(song.getId());
+    }
+    
+    public Song getSongById(String songId) {
+        return songId != null ? songsById.get(songId) : null;
+    }
+    
+    private void indexSong(Song song) {
+        songsById.put(song.getId(), song);
+        if (song.getFilePath() != null) {
+            songsByPath.put(song.getFilePath(), song);
+        }
+    }
+    
+    private void unindexSong(Song song) {
+        songsById.remove(song.getId());
+        if (song.getFilePath() != null) {
+            songsByPath.remove(song.getFilePath(), song);
+        }
+    }
+    
+    /**
+     * Actualiza la ruta de una canción cuyo archivo se movió o renombró
+     */
+    private void moveSongFile(Song song, String newPath) {
+        unindexSong(song);
+        song.setFilePath(newPath);
+        indexSong(song);
+        databaseManager.saveSong(song);
+    }
+    
+    public void removeSongFromLibrary(Song song) {
+        removeFromLibrary(Collections.singleton(song));
         System.out.println("Removed song: " + song.getTitle() + " by " + song.getArtist());
     }
     
@@ -352,11 +1083,52 @@ public class MainController {
             return;
         }
         
-        for (Song song : songs) {
-            removeSongFromLibrary(song);
+        removeFromLibrary(new HashSet<>(songs));
+        System.out.println("Removed " + songs.size() + " songs from library");
+    }
+    
+    /**
+     * Quita las canciones de la biblioteca, la cola y las playlists cargadas con
+     * una pasada por lista (un solo aviso de cambio cada una) y las borra de la
+     * base de datos en una transacción. Las listas se cambian en el hilo que llama
+     * (el de la interfaz); el borrado se hace en el hilo de las importaciones.
+     */
+    private void removeFromLibrary(Set<Song> removed) {
+        List<String> songIds = new ArrayList<>(removed.size());
+        for (Song song : removed) {
+            unindexSong(song);
+            songIds.add(song.getId());
         }
+        library.removeAll(removed);
         
-        System.out.println("Removed " + songs.size() + " songs from library");
+        // Also remove from current queue if present
+        currentQueue.removeAll(removed);
+        
+        // Playlists not loaded yet skip the songs when they resolve their ids
+        for (Playlist playlist : playlists) {
+            if (playlist.isLoaded()) {
+                playlist.removeSongs(removed);
+            }
+        }
+        
+        // If this is the currently playing song, stop playback
+        if (currentSong.get() != null && removed.contains(currentSong.get())) {
+            stop();
+            currentSong.set(null);
+        }
+        
+        Runnable delete = () -> {
+            // Write pending playlist snapshots first, so none brings the deleted songs back
+            playlistWriter.flush();
+            // Delete from database, playlist entries included
+            databaseManager.deleteSongs(songIds);
+        };
+        try {
+            importExecutor.execute(delete);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: delete now, before the database is closed
+            delete.run();
+        }
     }
     
     /**
@@ -453,25 +1225,25 @@ public class MainController {
             playlist.setDescription(description.trim());
         }
         playlists.add(playlist);
-        databaseManager.savePlaylist(playlist);
+        playlistWriter.save(playlist);
         return playlist;
     }
     
     public void deletePlaylist(Playlist playlist) {
         playlists.remove(playlist);
-        databaseManager.deletePlaylist(playlist.getId());
+        playlistWriter.delete(playlist.getId());
     }
     
     public void updatePlaylist(Playlist playlist) {
         if (playlist != null) {
-            databaseManager.updatePlaylist(playlist);
+            playlistWriter.save(playlist);
             System.out.println("Updated playlist: " + playlist.getName());
         }
     }
     
     public void addSongToPlaylist(Song song, Playlist playlist) {
         playlist.addSong(song);
-        databaseManager.updatePlaylist(playlist);
+        playlistWriter.save(playlist);
     }
     
     public void addSongsToPlaylist(List<Song> songs, Playlist playlist) {
@@ -479,7 +1251,7 @@ public class MainController {
             for (Song song : songs) {
                 playlist.addSong(song);
             }
-            databaseManager.updatePlaylist(playlist);
+            playlistWriter.save(playlist);
             System.out.println("Added " + songs.size() + " songs to playlist: " + playlist.getName());
         }
     }
@@ -489,7 +1261,7 @@ public class MainController {
             for (Song song : songs) {
                 playlist.removeSong(song);
             }
-            databaseManager.updatePlaylist(playlist);
+            playlistWriter.save(playlist);
             System.out.println("Removed " + songs.size() + " songs from playlist: " + playlist.getName());
         }
     }
@@ -498,7 +1270,7 @@ public class MainController {
         if (playlist != null) {
             int songsCount = playlist.getSongs().size();
             playlist.clearSongs();
-            databaseManager.updatePlaylist(playlist);
+            playlistWriter.save(playlist);
             System.out.println("Cleared playlist: " + playlist.getName() + " (" + songsCount + " songs removed)");
         }
     }
@@ -509,7 +1281,7 @@ public class MainController {
             int index = songs.indexOf(song);
             if (index > 0) {
                 playlist.moveSong(index, index - 1);
-                databaseManager.updatePlaylist(playlist);
+                playlistWriter.save(playlist);
                 System.out.println("Moved song up in playlist: " + song.getTitle());
             }
         }
@@ -521,7 +1293,7 @@ public class MainController {
             int index = songs.indexOf(song);
             if (index >= 0 && index < songs.size() - 1) {
                 playlist.moveSong(index, index + 1);
-                databaseManager.updatePlaylist(playlist);
+                playlistWriter.save(playlist);
                 System.out.println("Moved song down in playlist: " + song.getTitle());
             }
         }
@@ -543,7 +1315,7 @@ public class MainController {
             }
             
             if (anyMoved) {
-                databaseManager.updatePlaylist(playlist);
+                playlistWriter.save(playlist);
                 System.out.println("Moved " + selectedSongs.size() + " songs up in playlist");
             }
         }
@@ -565,7 +1337,7 @@ public class MainController {
             }
             
             if (anyMoved) {
-                databaseManager.updatePlaylist(playlist);
+                playlistWriter.save(playlist);
                 System.out.println("Moved " + selectedSongs.size() + " songs down in playlist");
             }
         }
@@ -601,7 +1373,7 @@ public class MainController {
      */
     public void removeSongsFromQueue(List<Song> songs) {
         if (songs != null && !songs.isEmpty()) {
-            currentQueue.removeAll(songs);
+            currentQueue.removeAll(new HashSet<>(songs));
             System.out.println("Removed " + songs.size() + " songs from queue");
         }
     }
@@ -632,21 +1404,69 @@ public class MainController {
     }
     
     // Data loading methods
+    /**
+     * Carga la primera página de la biblioteca para mostrarla enseguida y deja el
+     * resto cargándose en segundo plano
+     */
     private void loadLibrary() {
+        int pageSize = Math.max(1, AppConfig.getInt("library.page.size", 500));
         try {
-            List<Song> songs = databaseManager.getAllSongs();
-            library.setAll(songs);
-            System.out.println("Biblioteca cargada: " + songs.size() + " canciones");
+            List<Song> firstPage = databaseManager.getSongsPage(null, pageSize);
+            songsById.clear();
+            songsByPath.clear();
+            firstPage.forEach(this::indexSong);
+            library.setAll(firstPage);
+            
+            if (firstPage.size() < pageSize) {
+                System.out.println("Biblioteca cargada: " + firstPage.size() + " canciones");
+                libraryLoaded.complete(null);
+            } else {
+                Song last = firstPage.get(firstPage.size() - 1);
+                importExecutor.execute(() -> loadRemainingLibrary(last, pageSize, firstPage.size()));
+            }
         } catch (Exception e) {
             System.err.println("Error cargando biblioteca:");
             e.printStackTrace();
             library.clear();
+            libraryLoaded.complete(null);
+        }
+    }
+    
+    /**
+     * Carga el resto de la biblioteca página a página. Se ejecuta en el hilo de
+     * importaciones, así que ninguna importación empieza con la biblioteca a medias.
+     */
+    private void loadRemainingLibrary(Song after, int pageSize, int loaded) {
+        try {
+            List<Song> page;
+            do {
+                page = databaseManager.getSongsPage(after, pageSize);
+                // Songs indexed meanwhile by another change are not added twice
+                libraryPublisher.addAll(indexNewSongs(page));
+                loaded += page.size();
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1);
+                }
+            } while (page.size() == pageSize && !importExecutor.isShutdown());
+            System.out.println("Biblioteca cargada: " + loaded + " canciones");
+        } catch (Exception e) {
+            System.err.println("Error cargando biblioteca:");
+            e.printStackTrace();
+        } finally {
+            libraryLoaded.complete(null);
         }
     }
     
+    /**
+     * Carga las playlists sin sus canciones, que se buscan en la biblioteca al
+     * acceder a ellas. Mientras la biblioteca se carga, las que aún no están
+     * siguen pendientes (sin esperar a la carga); al terminar, libraryReady pasa a
+     * true para que la vista vuelva a mostrar las playlists.
+     */
     private void loadPlaylists() {
+        libraryLoaded.thenRun(() -> libraryPublisher.runAfterPending(() -> libraryReady.set(true)));
         try {
-            List<Playlist> loadedPlaylists = databaseManager.getAllPlaylists();
+            List<Playlist> loadedPlaylists = databaseManager.getAllPlaylists(this::getSongById, libraryLoaded::isDone);
             playlists.setAll(loadedPlaylists);
             System.out.println("Playlists cargadas: " + loadedPlaylists.size());
         } catch (Exception e) {
@@ -662,6 +1482,7 @@ public class MainController {
     public DoubleProperty volumeProperty() { return volume; }
     public DoubleProperty progressProperty() { return progress; }
     public BooleanProperty shuffleProperty() { return shuffle; }
+    public BooleanProperty libraryReadyProperty() { return libraryReady; }
     public ObjectProperty<RepeatMode> repeatModeProperty() { return repeatMode; }
     public ObjectProperty<Playlist> currentPlaylistProperty() { return currentPlaylist; }
     
@@ -672,7 +1493,22 @@ public class MainController {
     
     // Cleanup
     public void shutdown() {
+        if (folderWatcher != null) {
+            folderWatcher.close();
+        }
+        if (databaseBackup != null) {
+            databaseBackup.close();
+        }
+        importExecutor.shutdown();
+        try {
+            // Queued work, such as deleting removed songs, finishes before the database is closed
+            importExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         audioPlayer.shutdown();
+        // Pending playlist changes are written before the database is closed
+        playlistWriter.close();
         databaseManager.close();
     }
 }
@@ -0,0 +1,144 @@
+package com.reproductormusica.controller;
+
+import com.reproductormusica.model.Playlist;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Guardado diferido de playlists.
+ *
+ * Cada cambio deja una copia de la playlist pendiente de guardar y sustituye a la
+ * que hubiera para la misma playlist, de modo que muchos cambios seguidos (por
+ * ejemplo, mover una canción manteniendo pulsada una tecla) acaban en una sola
+ * escritura. Las copias pendientes se guardan desde un hilo propio cada cierto
+ * intervalo; close() guarda todo lo pendiente antes de volver.
+ */
+public class PlaylistWriter implements AutoCloseable {
+
+    private final Consumer<Playlist> saver;
+    private final Consumer<String> deleter;
+    private final ScheduledExecutorService executor;
+
+    // Latest snapshot per playlist id; null marks a pending delete
+    private final Map<String, Playlist> pending = new LinkedHashMap<>();
+    private final Object flushLock = new Object();
+    private boolean closed;
+
+    /**
+     * @param saver          guarda una playlist completa
+     * @param deleter        borra una playlist por id
+     * @param intervalMillis tiempo entre guardados
+     */
+    public PlaylistWriter(Consumer<Playlist> saver, Consumer<String> deleter, long intervalMillis) {
+        this.saver = saver;
+        this.deleter = deleter;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "playlist-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, intervalMillis);
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Programa el guardado del estado actual de la playlist
+     */
+    public void save(Playlist playlist) {
+        Playlist snapshot = snapshot(playlist);
+        boolean immediate;
+        synchronized (pending) {
+            pending.put(playlist.getId(), snapshot);
+            immediate = closed;
+        }
+        if (immediate) {
+            flush();
+        }
+    }
+
+    /**
+     * Programa el borrado de la playlist, descartando cualquier guardado pendiente
+     */
+    public void delete(String playlistId) {
+        boolean immediate;
+        synchronized (pending) {
+            pending.remove(playlistId);
+            pending.put(playlistId, null);
+            immediate = closed;
+        }
+        if (immediate) {
+            flush();
+        }
+    }
+
+    /**
+     * Guarda ahora todos los cambios pendientes
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<Map.Entry<String, Playlist>> batch;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pending.entrySet());
+                pending.clear();
+            }
+            for (Map.Entry<String, Playlist> entry : batch) {
+                try {
+                    if (entry.getValue() != null) {
+                        saver.accept(entry.getValue());
+                    } else {
+                        deleter.accept(entry.getKey());
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Error guardando la playlist " + entry.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Detiene el guardado periódico y guarda lo pendiente. A partir de aquí los
+     * cambios se guardan en el momento.
+     */
+    @Override
+    public void close() {
+        synchronized (pending) {
+            closed = true;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Copia la playlist para poder guardarla desde otro hilo mientras se sigue editando
+     */
+    private static Playlist snapshot(Playlist playlist) {
+        Playlist copy = new Playlist();
+        copy.setId(playlist.getId());
+        copy.setName(playlist.getName());
+        copy.setDescription(playlist.getDescription());
+        if (playlist.isLoaded()) {
+            copy.setSongs(playlist.getSongs());
+        } else {
+            // Only the ids are saved, so songs still loading are neither looked up nor lost
+            copy.setSongIds(playlist.getSongIds(), songId -> null);
+        }
+        copy.setCreatedDate(playlist.getCreatedDate());
+        copy.setModifiedDate(playlist.getModifiedDate());
+        return copy;
+    }
+}
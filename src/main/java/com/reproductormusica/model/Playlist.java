@@ -1,8 +1,13 @@
 package com.reproductormusica.model;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Representa una lista de reproducción
@@ -15,6 +20,11 @@ public class Playlist {
     private long createdDate;
     private long modifiedDate;
     
+    // Song ids still to be resolved on first access (see setSongIds)
+    private List<String> pendingSongIds;
+    private Function<String, Song> songResolver;
+    private BooleanSupplier resolverComplete;
+    
     public Playlist() {
         this.id = UUID.randomUUID().toString();
         this.songs = new ArrayList<>();
@@ -27,42 +37,172 @@ public class Playlist {
         this.name = name;
     }
     
+    // While some ids are still unresolved (see resolvePending) the changes are made on the ids
+    
     public void addSong(Song song) {
-        if (song != null && !songs.contains(song)) {
-            songs.add(song);
+        if (song == null) {
+            return;
+        }
+        if (resolvePending()) {
+            if (!songs.contains(song)) {
+                songs.add(song);
+                updateModifiedDate();
+            }
+        } else if (!pendingSongIds.contains(song.getId())) {
+            pendingSongIds.add(song.getId());
             updateModifiedDate();
         }
     }
     
     public void removeSong(Song song) {
-        if (songs.remove(song)) {
+        boolean removed = resolvePending() ? songs.remove(song) : pendingSongIds.remove(song.getId());
+        if (removed) {
+            updateModifiedDate();
+        }
+    }
+    
+    /**
+     * Quita de una vez todas las canciones indicadas; con un Set cada comprobación
+     * es constante
+     */
+    public void removeSongs(Collection<Song> songsToRemove) {
+        boolean removed;
+        if (resolvePending()) {
+            removed = songs.removeIf(songsToRemove::contains);
+        } else {
+            Set<String> idsToRemove = songsToRemove.stream().map(Song::getId).collect(Collectors.toSet());
+            removed = pendingSongIds.removeIf(idsToRemove::contains);
+        }
+        if (removed) {
             updateModifiedDate();
         }
     }
     
     public void removeSong(int index) {
-        if (index >= 0 && index < songs.size()) {
-            songs.remove(index);
+        List<Song> current = songs();
+        if (index >= 0 && index < current.size()) {
+            if (pendingSongIds == null) {
+                songs.remove(index);
+            } else {
+                pendingSongIds.remove(current.get(index).getId());
+            }
             updateModifiedDate();
         }
     }
     
     public void clearSongs() {
-        if (!songs.isEmpty()) {
-            songs.clear();
-            updateModifiedDate();
+        if (getSongCount() > 0) {
+            setSongs(new ArrayList<>());
         }
     }
     
     public void moveSong(int fromIndex, int toIndex) {
-        if (fromIndex >= 0 && fromIndex < songs.size() && 
-            toIndex >= 0 && toIndex < songs.size()) {
-            Song song = songs.remove(fromIndex);
-            songs.add(toIndex, song);
+        List<Song> current = songs();
+        if (fromIndex >= 0 && fromIndex < current.size() && 
+            toIndex >= 0 && toIndex < current.size()) {
+            if (pendingSongIds == null) {
+                Song song = songs.remove(fromIndex);
+                songs.add(toIndex, song);
+            } else {
+                // Same move on the ids: the song ends up next to the one that was at toIndex
+                String movedId = current.get(fromIndex).getId();
+                String targetId = current.get(toIndex).getId();
+                if (!movedId.equals(targetId)) {
+                    pendingSongIds.remove(movedId);
+                    int target = pendingSongIds.indexOf(targetId);
+                    pendingSongIds.add(fromIndex < toIndex ? target + 1 : target, movedId);
+                }
+            }
             updateModifiedDate();
         }
     }
     
+    /**
+     * Asigna las canciones por id sin cargarlas: se buscan con el resolver la
+     * primera vez que se accede a ellas, de modo que la playlist comparte las
+     * instancias de la biblioteca. Los ids que el resolver no encuentra se
+     * descartan. No cambia la fecha de modificación.
+     */
+    public void setSongIds(List<String> songIds, Function<String, Song> resolver) {
+        setSongIds(songIds, resolver, () -> true);
+    }
+    
+    /**
+     * Como setSongIds(songIds, resolver), pero mientras resolverComplete devuelva
+     * false (por ejemplo, con la biblioteca aún cargándose) los ids que no se
+     * encuentran no se descartan: la playlist muestra las canciones encontradas y
+     * vuelve a buscar el resto en el siguiente acceso.
+     */
+    public void setSongIds(List<String> songIds, Function<String, Song> resolver, BooleanSupplier resolverComplete) {
+        this.songs = new ArrayList<>();
+        this.pendingSongIds = new ArrayList<>(songIds);
+        this.songResolver = resolver;
+        this.resolverComplete = resolverComplete;
+    }
+    
+    /**
+     * Indica si las canciones ya se han buscado (o no había nada pendiente)
+     */
+    public boolean isLoaded() {
+        return pendingSongIds == null;
+    }
+    
+    /**
+     * Ids de las canciones en orden, sin buscarlas: incluye los que aún están
+     * pendientes
+     */
+    public List<String> getSongIds() {
+        if (pendingSongIds != null) {
+            return new ArrayList<>(pendingSongIds);
+        }
+        List<String> songIds = new ArrayList<>(songs.size());
+        for (Song song : songs) {
+            songIds.add(song.getId());
+        }
+        return songIds;
+    }
+    
+    /**
+     * Canciones de la playlist. Los ids pendientes se buscan y, si se encuentran
+     * todos o el resolver ya no va a encontrar más, se sustituyen por las
+     * canciones; si no, se devuelven las encontradas y los ids siguen pendientes.
+     */
+    private List<Song> songs() {
+        if (pendingSongIds == null) {
+            return songs;
+        }
+        // Checked before resolving, so a resolver completed meanwhile is not taken as final too early
+        boolean complete = resolverComplete.getAsBoolean();
+        List<Song> resolved = resolve();
+        if (!complete && resolved.size() < pendingSongIds.size()) {
+            return resolved;
+        }
+        songs = resolved;
+        pendingSongIds = null;
+        songResolver = null;
+        resolverComplete = null;
+        return songs;
+    }
+    
+    /**
+     * Intenta resolver los ids pendientes; devuelve false si aún quedan
+     */
+    private boolean resolvePending() {
+        songs();
+        return pendingSongIds == null;
+    }
+    
+    private List<Song> resolve() {
+        List<Song> resolved = new ArrayList<>(pendingSongIds.size());
+        for (String songId : pendingSongIds) {
+            Song song = songResolver.apply(songId);
+            if (song != null) {
+                resolved.add(song);
+            }
+        }
+        return resolved;
+    }
+    
     private void updateModifiedDate() {
         this.modifiedDate = System.currentTimeMillis();
     }
@@ -83,9 +223,12 @@ public class Playlist {
         updateModifiedDate();
     }
     
-    public List<Song> getSongs() { return new ArrayList<>(songs); }
+    public List<Song> getSongs() { return new ArrayList<>(songs()); }
     public void setSongs(List<Song> songs) { 
         this.songs = new ArrayList<>(songs); 
+        this.pendingSongIds = null;
+        this.songResolver = null;
+        this.resolverComplete = null;
         updateModifiedDate();
     }
     
@@ -96,15 +239,23 @@ public class Playlist {
     public void setModifiedDate(long modifiedDate) { this.modifiedDate = modifiedDate; }
     
     public int size() {
-        return songs.size();
+        return songs().size();
+    }
+    
+    /**
+     * Número de canciones sin buscarlas: mientras haya ids pendientes cuenta los
+     * ids, aunque alguno ya no esté en la biblioteca
+     */
+    public int getSongCount() {
+        return pendingSongIds != null ? pendingSongIds.size() : songs.size();
     }
     
     public boolean isEmpty() {
-        return songs.isEmpty();
+        return songs().isEmpty();
     }
     
     @Override
     public String toString() {
-        return name + " (" + songs.size() + " songs)";
+        return name + " (" + songs().size() + " songs)";
     }
 }
@@ -19,6 +19,11 @@ public class Song {
     private int year;
     private String lyrics;
     
+    // File state when the metadata was read, used to skip unchanged files on rescan
+    private long fileSize;
+    private long fileMtime;
+    private String fileInode;
+    
     public Song() {}
     
     public Song(String id, String title, String artist, String filePath) {
@@ -62,6 +67,22 @@ public class Song {
     public String getLyrics() { return lyrics; }
     public void setLyrics(String lyrics) { this.lyrics = lyrics; }
     
+    public long getFileSize() { return fileSize; }
+    public void setFileSize(long fileSize) { this.fileSize = fileSize; }
+    
+    public long getFileMtime() { return fileMtime; }
+    public void setFileMtime(long fileMtime) { this.fileMtime = fileMtime; }
+    
+    public String getFileInode() { return fileInode; }
+    public void setFileInode(String fileInode) { this.fileInode = fileInode; }
+    
+    /**
+     * Indica si el archivo tiene el mismo tamaño y fecha de modificación que al leerlo
+     */
+    public boolean isFileUnchanged(long size, long mtime) {
+        return fileSize == size && fileMtime == mtime;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
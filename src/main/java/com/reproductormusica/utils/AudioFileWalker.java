@@ -0,0 +1,144 @@
+package com.reproductormusica.utils;
+
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Recorre un árbol de directorios entregando cada archivo de audio en cuanto se
+ * descubre, sin construir antes la lista completa.
+ *
+ * Usa los atributos que devuelve Files.walkFileTree, por lo que no hace falta una
+ * llamada extra a isFile()/isDirectory() por entrada. Sigue enlaces simbólicos y
+ * omite los ciclos que estos puedan formar.
+ *
+ * Los archivos de cada directorio se entregan juntos y ordenados por nombre (al
+ * terminar de recorrer el directorio), de modo que las lecturas posteriores
+ * avanzan directorio a directorio en lugar de saltar por el disco.
+ */
+public class AudioFileWalker {
+
+    /**
+     * Recibe cada archivo de audio encontrado junto con sus atributos
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(Path file, BasicFileAttributes attrs) throws InterruptedException;
+    }
+
+    private final boolean recursive;
+
+    public AudioFileWalker() {
+        this(AppConfig.getBoolean("library.scan.subdirectories", true));
+    }
+
+    public AudioFileWalker(boolean recursive) {
+        this.recursive = recursive;
+    }
+
+    /**
+     * Recorre el directorio indicado y devuelve el número de archivos de audio entregados
+     */
+    public long walk(Path root, Visitor visitor) throws IOException, InterruptedException {
+        int maxDepth = recursive ? Integer.MAX_VALUE : 1;
+        AudioFileVisitor fileVisitor = new AudioFileVisitor(visitor);
+
+        try {
+            Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), maxDepth, fileVisitor);
+        } catch (InterruptedIOException e) {
+            throw (InterruptedException) e.getCause();
+        }
+        return fileVisitor.count;
+    }
+
+    private static final class AudioFileVisitor extends SimpleFileVisitor<Path> {
+        private final Visitor visitor;
+        // Audio files found in each directory being walked, delivered when it is finished
+        private final Deque<List<Found>> pending = new ArrayDeque<>();
+        private long count;
+
+        AudioFileVisitor(Visitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            pending.push(new ArrayList<>());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+            if (attrs.isRegularFile() && MetadataExtractor.isSupportedAudioFileName(file.getFileName().toString())) {
+                if (pending.isEmpty()) {
+                    deliver(new Found(file, attrs)); // The root itself is a file
+                } else {
+                    pending.peek().add(new Found(file, attrs));
+                }
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+            List<Found> files = pending.pop();
+            files.sort(Comparator.comparing(found -> found.file.getFileName().toString()));
+            for (Found found : files) {
+                deliver(found);
+            }
+            if (exc != null) {
+                System.err.println("No se pudo leer " + dir + ": " + exc.getMessage());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void deliver(Found found) throws IOException {
+            try {
+                visitor.visit(found.file, found.attrs);
+                count++;
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException(e);
+            }
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            if (exc instanceof FileSystemLoopException) {
+                System.err.println("Omitiendo enlace cíclico: " + file);
+            } else {
+                System.err.println("No se pudo leer " + file + ": " + exc.getMessage());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+    }
+
+    private static final class Found {
+        final Path file;
+        final BasicFileAttributes attrs;
+
+        Found(Path file, BasicFileAttributes attrs) {
+            this.file = file;
+            this.attrs = attrs;
+        }
+    }
+
+    /**
+     * Transporta una interrupción a través de walkFileTree, que solo admite IOException
+     */
+    private static final class InterruptedIOException extends IOException {
+        InterruptedIOException(InterruptedException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.reproductormusica.utils;
+
+import java.util.Locale;
+
+/**
+ * Formatos de audio reconocidos, con su extensión y la firma de sus primeros bytes
+ */
+public enum AudioFormat {
+    MP3("mp3"),
+    FLAC("flac"),
+    WAV("wav"),
+    OGG("ogg"),
+    M4A("m4a"),
+    AAC("aac"),
+    WMA("wma");
+
+    /**
+     * Bytes del inicio del archivo necesarios para reconocer cualquier formato
+     */
+    public static final int SNIFF_LENGTH = 16;
+
+    // First bytes of the ASF header object GUID used by WMA
+    private static final int[] ASF_GUID = {0x30, 0x26, 0xB2, 0x75, 0x8E, 0x66, 0xCF, 0x11};
+
+    private final String extension;
+
+    AudioFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Formato correspondiente a la extensión (sin punto), o null si no es de audio
+     */
+    public static AudioFormat fromExtension(String extension) {
+        String normalized = extension.trim().toLowerCase(Locale.ROOT);
+        if (normalized.startsWith(".")) {
+            normalized = normalized.substring(1);
+        }
+        for (AudioFormat format : values()) {
+            if (format.extension.equals(normalized)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Formato según la extensión del nombre de archivo, o null si no es de audio
+     */
+    public static AudioFormat fromFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fromExtension(fileName.substring(dot + 1)) : null;
+    }
+
+    /**
+     * Indica si los primeros bytes del archivo tienen la firma de este formato
+     */
+    public boolean matches(byte[] head, int length) {
+        switch (this) {
+            case MP3:
+                return startsWith(head, length, "ID3") || isMpegAudioFrame(head, length);
+            case FLAC:
+                return startsWith(head, length, "fLaC") || startsWith(head, length, "ID3");
+            case WAV:
+                return startsWith(head, length, "RIFF") && regionMatches(head, length, 8, "WAVE");
+            case OGG:
+                return startsWith(head, length, "OggS");
+            case M4A:
+                return regionMatches(head, length, 4, "ftyp");
+            case AAC:
+                return startsWith(head, length, "ADIF") || startsWith(head, length, "ID3") || isAdtsFrame(head, length);
+            case WMA:
+                return isAsfHeader(head, length);
+            default:
+                return false;
+        }
+    }
+
+    // MPEG audio frame sync with a valid version and layer I-III (layer bits 00 would be ADTS)
+    private static boolean isMpegAudioFrame(byte[] head, int length) {
+        return length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xE0) == 0xE0
+            && ((head[1] >> 3) & 0x03) != 1 && ((head[1] >> 1) & 0x03) != 0;
+    }
+
+    private static boolean isAdtsFrame(byte[] head, int length) {
+        return length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xF6) == 0xF0;
+    }
+
+    private static boolean isAsfHeader(byte[] head, int length) {
+        if (length < ASF_GUID.length) {
+            return false;
+        }
+        for (int i = 0; i < ASF_GUID.length; i++) {
+            if ((head[i] & 0xFF) != ASF_GUID[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(byte[] head, int length, String ascii) {
+        return regionMatches(head, length, 0, ascii);
+    }
+
+    private static boolean regionMatches(byte[] head, int length, int offset, String ascii) {
+        if (offset + ascii.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (head[offset + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
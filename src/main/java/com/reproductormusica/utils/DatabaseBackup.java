@@ -0,0 +1,235 @@
+package com.reproductormusica.utils;
+
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.Codes;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copias de seguridad periódicas de la base de datos.
+ *
+ * Copiar el archivo mientras la aplicación escribe puede dar una copia corrupta,
+ * así que se usa la API de copia en caliente de SQLite desde una conexión de solo
+ * lectura propia, en un hilo aparte. La copia avanza en tramos de pocas páginas
+ * con una pausa entre ellos, dentro de una transacción de lectura: la copia es
+ * la base de datos tal como estaba al empezar y, como está en modo WAL, las
+ * escrituras de la aplicación no esperan a la copia ni la hacen empezar de
+ * nuevo. Cada copia se escribe con otro nombre y se renombra al terminar, y solo
+ * se conservan las más recientes.
+ */
+public class DatabaseBackup implements AutoCloseable {
+
+    private static final String PART_SUFFIX = ".part";
+    private static final long DEFAULT_INTERVAL_HOURS = 24;
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path database;
+    private final Path directory;
+    private final long intervalMillis;
+    private final int keep;
+    private final int pagesPerStep;
+    private final long pauseMillis;
+    private final String prefix;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param database       archivo de base de datos a copiar
+     * @param directory      carpeta de las copias
+     * @param intervalMillis tiempo entre copias, mayor que cero
+     * @param keep           copias que se conservan
+     * @param pagesPerStep   páginas copiadas en cada tramo
+     * @param pauseMillis    pausa entre tramos
+     */
+    public DatabaseBackup(Path database, Path directory, long intervalMillis, int keep,
+                          int pagesPerStep, long pauseMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive: " + intervalMillis);
+        }
+        this.database = database;
+        this.directory = directory;
+        this.intervalMillis = intervalMillis;
+        this.keep = Math.max(1, keep);
+        this.pagesPerStep = Math.max(1, pagesPerStep);
+        this.pauseMillis = Math.max(0, pauseMillis);
+        String fileName = database.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        this.prefix = (dot > 0 ? fileName.substring(0, dot) : fileName) + "-";
+    }
+
+    /**
+     * Copias de la base de datos indicada según database.backup.* (el intervalo en
+     * horas), guardadas en la carpeta &lt;base de datos&gt;-backups. Un intervalo que
+     * no es positivo se cambia por el de por defecto.
+     */
+    public static DatabaseBackup fromConfig(String databasePath) {
+        Path database = Paths.get(databasePath).toAbsolutePath();
+        long intervalHours = AppConfig.getLong("database.backup.interval", DEFAULT_INTERVAL_HOURS);
+        if (intervalHours <= 0) {
+            System.err.println("database.backup.interval debe ser positivo (" + intervalHours +
+                               "); se usan " + DEFAULT_INTERVAL_HOURS + " horas");
+            intervalHours = DEFAULT_INTERVAL_HOURS;
+        }
+        return new DatabaseBackup(database,
+                                  Paths.get(databasePath + "-backups").toAbsolutePath(),
+                                  TimeUnit.HOURS.toMillis(intervalHours),
+                                  AppConfig.getInt("database.backup.keep", 7),
+                                  AppConfig.getInt("database.backup.pages.per.step", 256),
+                                  AppConfig.getLong("database.backup.pause.ms", 20));
+    }
+
+    /**
+     * Programa las copias en un hilo propio. La primera se hace cuando toque según
+     * la fecha de la última copia existente, no en cada arranque.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "database-backup");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                backupNow();
+            } catch (IOException | SQLException e) {
+                System.err.println("Error en la copia de seguridad: " + e.getMessage());
+            }
+        }, getInitialDelay(), intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private long getInitialDelay() {
+        try {
+            List<Path> backups = listBackups();
+            if (backups.isEmpty()) {
+                return 0;
+            }
+            long last = Files.getLastModifiedTime(backups.get(backups.size() - 1)).toMillis();
+            return Math.max(0, last + intervalMillis - System.currentTimeMillis());
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Hace una copia ahora, en el hilo que llama, y borra las que sobren.
+     * Devuelve la ruta de la copia.
+     */
+    public Path backupNow() throws IOException, SQLException {
+        Files.createDirectories(directory);
+        deleteIncompleteBackups();
+
+        Path target = directory.resolve(prefix + LocalDateTime.now().format(STAMP) + ".db");
+        Path part = directory.resolve(target.getFileName() + PART_SUFFIX);
+        long start = System.nanoTime();
+
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database, config.toProperties())) {
+            // A read transaction held for the whole copy fixes one snapshot: otherwise every
+            // write of the application between two steps restarts the copy from the first page
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeQuery("SELECT COUNT(*) FROM sqlite_master").close();
+            }
+            SQLiteConnection sqlite = connection.unwrap(SQLiteConnection.class);
+            // The observer runs after every step on this thread, so pausing there spaces the steps out
+            int rc = sqlite.getDatabase().backup("main", part.toString(), (remaining, pageCount) -> pause(),
+                                                 100, 50, pagesPerStep);
+            if (rc != Codes.SQLITE_OK && rc != Codes.SQLITE_DONE) {
+                throw new SQLException("SQLite backup failed with code " + rc, null, rc);
+            }
+            connection.rollback();
+        } catch (SQLException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+
+        System.out.printf("Copia de seguridad creada en %.1f s: %s%n",
+                          (System.nanoTime() - start) / 1_000_000_000.0, target);
+        rotate();
+        return target;
+    }
+
+    private void pause() {
+        if (pauseMillis == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            // Finish the copy without pauses; the interrupt is kept for the caller
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copias completas, de la más antigua a la más reciente
+     */
+    public List<Path> listBackups() throws IOException {
+        List<Path> backups = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return backups;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*.db")) {
+            stream.forEach(backups::add);
+        }
+        // The timestamp in the name sorts chronologically
+        Collections.sort(backups);
+        return backups;
+    }
+
+    private void rotate() throws IOException {
+        List<Path> backups = listBackups();
+        for (int i = 0; i < backups.size() - keep; i++) {
+            Files.deleteIfExists(backups.get(i));
+        }
+    }
+
+    // Copies left behind when the application stopped in the middle of a backup
+    private void deleteIncompleteBackups() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + PART_SUFFIX)) {
+            for (Path part : stream) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    /**
+     * Detiene las copias programadas. Una copia en curso termina sin pausas.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+}
@@ -2,33 +2,202 @@ package com.reproductormusica.utils;
 
 import com.reproductormusica.model.Playlist;
 import com.reproductormusica.model.Song;
+import org.sqlite.SQLiteConfig;
 
 import java.sql.*;
-import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
 
 /**
- * Maneja la persistencia de datos en SQLite
+ * Maneja la persistencia de datos en SQLite.
+ *
+ * La base de datos trabaja en modo WAL: todas las escrituras pasan por una única
+ * conexión, serializadas, mientras que las lecturas usan un pequeño conjunto de
+ * conexiones de solo lectura que no esperan a que termine una importación. Cada
+ * conexión prepara cada sentencia una sola vez y la reutiliza (ver StatementCache).
  */
 public class DatabaseManager {
     
     private static final String DB_NAME = "music_library.db";
-    private static final String DB_URL = "jdbc:sqlite:" + DB_NAME;
     
+    /**
+     * Ruta que crea la base de datos en memoria en lugar de en un archivo; se
+     * pierde al cerrar el gestor. Útil para pruebas y mediciones.
+     */
+    public static final String IN_MEMORY = ":memory:";
+    private static final AtomicInteger MEMORY_DATABASES = new AtomicInteger();
+    
+    private final String dbPath;
+    private final String dbUrl;
+    
+    // Single writer connection; every method that writes is synchronized on this manager
     private Connection connection;
+    private StatementCache statements;
+    private ReadConnectionPool readPool;
+    
+    /**
+     * Base de datos indicada en database.name (una ruta, relativa al directorio
+     * de trabajo o absoluta, o IN_MEMORY)
+     */
+    public DatabaseManager() {
+        this(AppConfig.getString("database.name", DB_NAME));
+    }
+    
+    /**
+     * @param dbPath ruta del archivo de base de datos, o IN_MEMORY
+     */
+    public DatabaseManager(String dbPath) {
+        this.dbPath = dbPath;
+        // The writer and the readers must all open the same in-memory database, so it gets
+        // a name of its own and a shared cache
+        this.dbUrl = IN_MEMORY.equals(dbPath)
+            ? "jdbc:sqlite:file:library-" + MEMORY_DATABASES.incrementAndGet() + "?mode=memory&cache=shared"
+            : "jdbc:sqlite:" + dbPath;
+    }
+    
+    /**
+     * Gestor de una base de datos nueva en memoria, independiente de cualquier otra
+     */
+    public static DatabaseManager inMemory() {
+        return new DatabaseManager(IN_MEMORY);
+    }
+    
+    public boolean isInMemory() {
+        return IN_MEMORY.equals(dbPath);
+    }
+    
+    /**
+     * Ruta del archivo de base de datos; otros archivos de la biblioteca se guardan junto a él
+     */
+    public String getDatabasePath() {
+        return dbPath;
+    }
     
-    public void initialize() {
+    public synchronized void initialize() {
         try {
-            connection = DriverManager.getConnection(DB_URL);
-            createTables();
-            migrateDatabaseIfNeeded();
+            connection = DriverManager.getConnection(dbUrl, writerConfig().toProperties());
+            try (Statement stmt = connection.createStatement()) {
+                // page_size only applies to a new database, and only before it switches to WAL
+                stmt.execute("PRAGMA page_size = " + AppConfig.getInt("database.page.size", 4096));
+                stmt.execute("PRAGMA journal_mode = WAL");
+            }
+            schemaMigrator().migrate(connection);
+            int maxStatements = AppConfig.getInt("database.statement.cache.size", 32);
+            statements = new StatementCache(connection, maxStatements);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(DELETED_SONGS_TABLE_SQL);
+            }
+            readPool = new ReadConnectionPool(dbUrl, readerConfig().toProperties(),
+                                              AppConfig.getInt("database.read.connections", 3), maxStatements);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
     
-    private void createTables() throws SQLException {
+    /**
+     * WAL permite leer mientras se escribe; con synchronous=NORMAL solo se sincroniza
+     * el disco en los checkpoints, y un corte de luz puede perder como mucho las
+     * últimas transacciones, nunca corromper la base de datos
+     */
+    private SQLiteConfig writerConfig() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(
+            AppConfig.getString("database.synchronous", "NORMAL").toUpperCase()));
+        config.setBusyTimeout(AppConfig.getInt("database.busy.timeout.ms", 5000));
+        configureMemory(config);
+        return config;
+    }
+    
+    private SQLiteConfig readerConfig() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        config.setBusyTimeout(AppConfig.getInt("database.busy.timeout.ms", 5000));
+        if (isInMemory()) {
+            // In-memory databases have no WAL: with a shared cache a reader would fail with
+            // SQLITE_LOCKED during a write, so readers skip the locks and may see uncommitted rows.
+            // Nothing they read is cached for that reason (see getSongLyrics)
+            config.setReadUncommited(true);
+        }
+        configureMemory(config);
+        return config;
+    }
+    
+    /**
+     * Caché de páginas (database.cache.size.kb) y tamaño de la zona del archivo
+     * que se lee mapeada en memoria (database.mmap.size.mb, 0 para no usarla) de
+     * cada conexión
+     */
+    private static void configureMemory(SQLiteConfig config) {
+        // A negative cache_size is in KiB rather than pages, so it does not depend on the page size
+        config.setCacheSize(-AppConfig.getInt("database.cache.size.kb", 2000));
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE,
+                         String.valueOf(AppConfig.getLong("database.mmap.size.mb", 0) * 1024 * 1024));
+    }
+    
+    /**
+     * Conexión de solo lectura, que vuelve al conjunto al cerrar el préstamo
+     */
+    private ReadConnectionPool.Lease borrowReader() throws SQLException {
+        if (readPool == null) {
+            throw new SQLException("Database not initialized");
+        }
+        return readPool.borrow();
+    }
+    
+    /**
+     * Migraciones del esquema, en orden. Cada paso lleva la base de datos de la
+     * versión anterior a la suya; las bases de datos creadas antes de que existiera
+     * user_version están en la versión 0 con cualquier estado intermedio, por eso
+     * los primeros pasos comprueban lo que ya existe. Los cambios nuevos se añaden
+     * siempre como un paso más al final, nunca modificando uno ya publicado.
+     */
+    private static SchemaMigrator schemaMigrator() {
+        return new SchemaMigrator(DatabaseManager::reportMigration)
+            .add(1, "Tablas iniciales", (conn, progress) -> createInitialTables(conn))
+            .add(2, "Estado de archivo de las canciones", (conn, progress) -> {
+                addColumnIfMissing(conn, "file_size", "INTEGER");
+                addColumnIfMissing(conn, "file_mtime", "INTEGER");
+                addColumnIfMissing(conn, "file_inode", "TEXT");
+            })
+            .add(3, "Rutas de archivo únicas", (conn, progress) -> createUniqueFilePathIndex(conn))
+            .add(4, "Clave de orden de la biblioteca", (conn, progress) -> {
+                // Sort key without NULLs, so pages can continue after the last row with a row-value comparison
+                addColumnIfMissing(conn, "sort_artist", "TEXT GENERATED ALWAYS AS (IFNULL(artist, '')) VIRTUAL");
+                addColumnIfMissing(conn, "sort_album", "TEXT GENERATED ALWAYS AS (IFNULL(album, '')) VIRTUAL");
+                addColumnIfMissing(conn, "sort_track", "INTEGER GENERATED ALWAYS AS (IFNULL(track_number, 0)) VIRTUAL");
+            })
+            .add(5, "Índices de consulta", (conn, progress) -> createIndexes(conn))
+            .add(6, "Letras comprimidas en su propia tabla", DatabaseManager::moveLyricsToOwnTable);
+    }
+    
+    /**
+     * Versión del esquema que deja initialize()
+     */
+    static int getSchemaVersion() {
+        return schemaMigrator().getLatestVersion();
+    }
+    
+    private static void reportMigration(int version, String description, long done, long total) {
+        if (done == 0) {
+            System.out.println("Migrando base de datos a la versión " + version + ": " + description + "...");
+        } else if (done == total) {
+            System.out.println("Versión " + version + " aplicada");
+        } else {
+            System.out.printf("  %s: %d de %d%n", description, done, total);
+        }
+    }
+    
+    private static void createInitialTables(Connection conn) throws SQLException {
         // Songs table
         String createSongsTable = """
             CREATE TABLE IF NOT EXISTS songs (
@@ -71,99 +240,309 @@ public class DatabaseManager {
             )
         """;
         
-        try (Statement stmt = connection.createStatement()) {
+        // Library root folders (imported folders that are rescanned and watched)
+        String createLibraryFoldersTable = """
+            CREATE TABLE IF NOT EXISTS library_folders (
+                path TEXT PRIMARY KEY,
+                added_date INTEGER
+            )
+        """;
+        
+        try (Statement stmt = conn.createStatement()) {
             stmt.execute(createSongsTable);
             stmt.execute(createPlaylistsTable);
             stmt.execute(createPlaylistSongsTable);
+            stmt.execute(createLibraryFoldersTable);
+        }
+    }
+    
+    private static List<String> getSongColumns(Connection conn) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_xinfo(songs)")) {
+            while (rs.next()) {
+                columns.add(rs.getString("name"));
+            }
+        }
+        return columns;
+    }
+    
+    private static void addColumnIfMissing(Connection conn, String column, String type) throws SQLException {
+        if (!getSongColumns(conn).contains(column)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE songs ADD COLUMN " + column + " " + type);
+                System.out.println("Columna '" + column + "' agregada a la tabla songs");
+            }
         }
     }
     
     /**
-     * Migra la base de datos si es necesario (agrega columnas faltantes)
+     * Crea el índice único sobre file_path. Las bases de datos antiguas pueden tener
+     * la misma canción importada varias veces: se conserva la primera fila de cada
+     * ruta y sus entradas en playlists pasan a apuntar a ella.
      */
-    private void migrateDatabaseIfNeeded() throws SQLException {
-        // Verificar si la columna lyrics existe
-        String checkLyricsColumn = "PRAGMA table_info(songs)";
-        boolean lyricsColumnExists = false;
-        
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(checkLyricsColumn)) {
+    private static void createUniqueFilePathIndex(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TEMP TABLE song_duplicates AS
+                SELECT s.id AS duplicate_id, k.id AS kept_id
+                FROM songs s
+                JOIN songs k ON k.file_path = s.file_path
+                    AND k.rowid = (SELECT MIN(rowid) FROM songs WHERE file_path = s.file_path)
+                WHERE s.rowid <> k.rowid
+            """);
+            stmt.execute("""
+                UPDATE OR IGNORE playlist_songs
+                SET song_id = (SELECT kept_id FROM song_duplicates WHERE duplicate_id = song_id)
+                WHERE song_id IN (SELECT duplicate_id FROM song_duplicates)
+            """);
+            stmt.execute("DELETE FROM playlist_songs WHERE song_id IN (SELECT duplicate_id FROM song_duplicates)");
+            int removed = stmt.executeUpdate("DELETE FROM songs WHERE id IN (SELECT duplicate_id FROM song_duplicates)");
+            stmt.execute("DROP TABLE song_duplicates");
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_songs_file_path ON songs(file_path)");
             
-            while (rs.next()) {
-                String columnName = rs.getString("name");
-                if ("lyrics".equals(columnName)) {
-                    lyricsColumnExists = true;
-                    break;
-                }
+            if (removed > 0) {
+                System.out.println("Eliminadas " + removed + " canciones duplicadas de la biblioteca");
             }
         }
-        
-        // Si no existe la columna lyrics, agregarla
-        if (!lyricsColumnExists) {
-            String addLyricsColumn = "ALTER TABLE songs ADD COLUMN lyrics TEXT";
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute(addLyricsColumn);
-                System.out.println("Columna 'lyrics' agregada a la tabla songs");
+    }
+    
+    /**
+     * Índices para que ninguna consulta recorra una tabla entera sin índice ni
+     * tenga que ordenar en una tabla temporal (lo comprueba DatabaseManagerTest).
+     * La biblioteca se lee en el orden de idx_songs_sort_key y las entradas de
+     * las playlists en el de idx_playlist_songs_position, que además las cubre.
+     */
+    private static void createIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP INDEX IF EXISTS idx_songs_artist_album");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_songs_sort_key ON songs(sort_artist, sort_album, sort_track, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_playlist_songs_position ON playlist_songs(playlist_id, position, song_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_playlist_songs_song ON playlist_songs(song_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_playlists_name ON playlists(name)");
+        }
+    }
+    
+    /**
+     * Las letras pasan de una columna de songs a la tabla song_lyrics, comprimidas,
+     * para que leer la biblioteca no las cargue
+     */
+    private static void moveLyricsToOwnTable(Connection conn, SchemaMigrator.Progress progress) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS song_lyrics (
+                    song_id TEXT PRIMARY KEY,
+                    lyrics BLOB NOT NULL
+                )
+            """);
+            if (!getSongColumns(conn).contains("lyrics")) {
+                return;
+            }
+            
+            long total;
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM songs WHERE lyrics IS NOT NULL AND lyrics <> ''")) {
+                total = rs.next() ? rs.getLong(1) : 0;
+            }
+            long moved = 0;
+            try (PreparedStatement insert = conn.prepareStatement(SAVE_LYRICS_SQL);
+                 ResultSet rs = stmt.executeQuery("SELECT id, lyrics FROM songs WHERE lyrics IS NOT NULL AND lyrics <> ''")) {
+                while (rs.next()) {
+                    insert.setString(1, rs.getString("id"));
+                    insert.setBytes(2, LyricsCodec.compress(rs.getString("lyrics")));
+                    insert.addBatch();
+                    if (++moved % 1000 == 0) {
+                        insert.executeBatch();
+                        progress.update(moved, total);
+                    }
+                }
+                insert.executeBatch();
             }
+            stmt.execute("ALTER TABLE songs DROP COLUMN lyrics");
         }
     }
     
     // Song operations
-    public void saveSong(Song song) {
-        String sql = """
-            INSERT OR REPLACE INTO songs 
-            (id, title, artist, album, genre, duration_seconds, file_path, album_art, track_number, year, lyrics, created_date, modified_date)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        """;
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, song.getId());
-            pstmt.setString(2, song.getTitle());
-            pstmt.setString(3, song.getArtist());
-            pstmt.setString(4, song.getAlbum());
-            pstmt.setString(5, song.getGenre());
-            pstmt.setLong(6, song.getDuration() != null ? song.getDuration().toSeconds() : 0);
-            pstmt.setString(7, song.getFilePath());
-            pstmt.setString(8, song.getAlbumArt());
-            pstmt.setInt(9, song.getTrackNumber());
-            pstmt.setInt(10, song.getYear());
-            pstmt.setString(11, song.getLyrics());
-            pstmt.setLong(12, System.currentTimeMillis());
-            pstmt.setLong(13, System.currentTimeMillis());
-            
+    
+    // Upsert keeps created_date when the song is saved again; lyrics live in song_lyrics
+    private static final String SAVE_SONG_SQL = """
+        INSERT INTO songs 
+        (id, title, artist, album, genre, duration_seconds, file_path, album_art, track_number, year, created_date, modified_date,
+         file_size, file_mtime, file_inode)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT(id) DO UPDATE SET
+            title = excluded.title,
+            artist = excluded.artist,
+            album = excluded.album,
+            genre = excluded.genre,
+            duration_seconds = excluded.duration_seconds,
+            file_path = excluded.file_path,
+            album_art = excluded.album_art,
+            track_number = excluded.track_number,
+            year = excluded.year,
+            modified_date = excluded.modified_date,
+            file_size = excluded.file_size,
+            file_mtime = excluded.file_mtime,
+            file_inode = excluded.file_inode
+    """;
+    
+    public synchronized void saveSong(Song song) {
+        try {
+            PreparedStatement pstmt = statements.prepare(SAVE_SONG_SQL);
+            bindSong(pstmt, song, System.currentTimeMillis());
             pstmt.executeUpdate();
+            if (song.getLyrics() != null) {
+                writeLyrics(song.getId(), song.getLyrics());
+                cacheLyrics(song.getId(), song.getLyrics());
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Guarda varias canciones reutilizando una sola sentencia preparada y confirmando
+     * en transacciones de database.batch.size filas, en lugar de una por canción.
+     * Devuelve el número de canciones guardadas.
+     */
+    public int saveSongs(List<Song> songs) {
+        return saveSongs(songs, AppConfig.getInt("database.batch.size", 500));
+    }
+    
+    public int saveSongs(List<Song> songs, int batchSize) {
+        return saveSongs(songs, batchSize, committed -> { });
+    }
+    
+    /**
+     * Como saveSongs(songs), pero entrega a committed cada lote una vez confirmado,
+     * de modo que el llamador solo da por guardadas las canciones que lo están
+     */
+    public int saveSongs(List<Song> songs, Consumer<List<Song>> committed) {
+        return saveSongs(songs, AppConfig.getInt("database.batch.size", 500), committed);
+    }
+    
+    public synchronized int saveSongs(List<Song> songs, int batchSize, Consumer<List<Song>> committed) {
+        if (songs == null || songs.isEmpty()) {
+            return 0;
+        }
+        
+        long start = System.nanoTime();
+        int saved = 0;
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = statements.prepare(SAVE_SONG_SQL);
+                for (int from = 0; from < songs.size(); from += batchSize) {
+                    List<Song> batch = songs.subList(from, Math.min(from + batchSize, songs.size()));
+                    long now = System.currentTimeMillis();
+                    try {
+                        for (Song song : batch) {
+                            bindSong(pstmt, song, now);
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                        for (Song song : batch) {
+                            if (song.getLyrics() != null) {
+                                writeLyrics(song.getId(), song.getLyrics());
+                            }
+                        }
+                        connection.commit();
+                        saved += batch.size();
+                        // Only committed lyrics reach the cache; a rolled back batch leaves it as it was
+                        for (Song song : batch) {
+                            if (song.getLyrics() != null) {
+                                cacheLyrics(song.getId(), song.getLyrics());
+                            }
+                        }
+                        committed.accept(batch);
+                    } catch (SQLException e) {
+                        pstmt.clearBatch();
+                        connection.rollback();
+                        System.err.println("Error guardando lote de " + batch.size() + " canciones: " + e.getMessage());
+                    }
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("Guardadas %d canciones en %.3f s (%.0f filas/s)%n",
+                          saved, seconds, seconds > 0 ? saved / seconds : saved);
+        return saved;
+    }
+    
+    private void bindSong(PreparedStatement pstmt, Song song, long now) throws SQLException {
+        pstmt.setString(1, song.getId());
+        pstmt.setString(2, song.getTitle());
+        pstmt.setString(3, song.getArtist());
+        pstmt.setString(4, song.getAlbum());
+        pstmt.setString(5, song.getGenre());
+        pstmt.setLong(6, song.getDuration() != null ? song.getDuration().toSeconds() : 0);
+        pstmt.setString(7, song.getFilePath());
+        pstmt.setString(8, song.getAlbumArt());
+        pstmt.setInt(9, song.getTrackNumber());
+        pstmt.setInt(10, song.getYear());
+        pstmt.setLong(11, now);
+        pstmt.setLong(12, now);
+        pstmt.setLong(13, song.getFileSize());
+        pstmt.setLong(14, song.getFileMtime());
+        pstmt.setString(15, song.getFileInode());
     }
     
+    // Library order: artist, album and track (missing values first), then id so the key is unique
+    private static final String ALL_SONGS_SQL =
+        "SELECT * FROM songs ORDER BY sort_artist, sort_album, sort_track, id";
+    private static final String FIRST_SONGS_PAGE_SQL =
+        "SELECT * FROM songs ORDER BY sort_artist, sort_album, sort_track, id LIMIT ?";
+    private static final String NEXT_SONGS_PAGE_SQL = """
+        SELECT * FROM songs
+        WHERE (sort_artist, sort_album, sort_track, id) > (?, ?, ?, ?)
+        ORDER BY sort_artist, sort_album, sort_track, id
+        LIMIT ?
+    """;
+    
     public List<Song> getAllSongs() {
         List<Song> songs = new ArrayList<>();
-        String sql = "SELECT * FROM songs ORDER BY artist, album, track_number";
+        try (ReadConnectionPool.Lease reader = borrowReader();
+             ResultSet rs = reader.prepare(ALL_SONGS_SQL).executeQuery()) {
+            SongRowMapper mapper = new SongRowMapper(rs);
+            while (rs.next()) {
+                songs.add(mapper.map(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        return songs;
+    }
+    
+    /**
+     * Devuelve la página de hasta limit canciones que sigue a after en el orden de
+     * la biblioteca (la primera página si after es null). Cada página se busca en
+     * el índice a partir de la clave de la anterior, así que leer la página n no
+     * obliga a recorrer las n - 1 primeras.
+     */
+    public List<Song> getSongsPage(Song after, int limit) {
+        List<Song> songs = new ArrayList<>();
+        try (ReadConnectionPool.Lease reader = borrowReader()) {
+            PreparedStatement pstmt = reader.prepare(after == null ? FIRST_SONGS_PAGE_SQL : NEXT_SONGS_PAGE_SQL);
+            int index = 1;
+            if (after != null) {
+                pstmt.setString(index++, after.getArtist() != null ? after.getArtist() : "");
+                pstmt.setString(index++, after.getAlbum() != null ? after.getAlbum() : "");
+                pstmt.setInt(index++, after.getTrackNumber());
+                pstmt.setString(index++, after.getId());
+            }
+            pstmt.setInt(index, limit);
             
-            while (rs.next()) {
-                Song song = new Song();
-                song.setId(rs.getString("id"));
-                song.setTitle(rs.getString("title"));
-                song.setArtist(rs.getString("artist"));
-                song.setAlbum(rs.getString("album"));
-                song.setGenre(rs.getString("genre"));
-                
-                long durationSeconds = rs.getLong("duration_seconds");
-                if (durationSeconds > 0) {
-                    song.setDuration(Duration.ofSeconds(durationSeconds));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                SongRowMapper mapper = new SongRowMapper(rs);
+                while (rs.next()) {
+                    songs.add(mapper.map(rs));
                 }
-                
-                song.setFilePath(rs.getString("file_path"));
-                song.setAlbumArt(rs.getString("album_art"));
-                song.setTrackNumber(rs.getInt("track_number"));
-                song.setYear(rs.getInt("year"));
-                song.setLyrics(rs.getString("lyrics"));
-                
-                songs.add(song);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -172,176 +551,405 @@ public class DatabaseManager {
         return songs;
     }
     
+    /**
+     * Recorre toda la biblioteca en orden, página a página, sin tenerla entera en
+     * memoria. Cada página usa su propia lectura, de modo que un recorrido largo no
+     * retiene una conexión ni impide los checkpoints del WAL.
+     */
+    public void forEachSong(int pageSize, Consumer<Song> action) {
+        int limit = Math.max(1, pageSize);
+        Song last = null;
+        List<Song> page;
+        do {
+            page = getSongsPage(last, limit);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                last = page.get(page.size() - 1);
+            }
+        } while (page.size() == limit);
+    }
+    
+    // Ids to delete go into a temporary table of the writer connection, so a single
+    // statement per table removes any number of songs by joining on it
+    static final String DELETED_SONGS_TABLE_SQL = "CREATE TEMP TABLE IF NOT EXISTS deleted_song_ids (id TEXT PRIMARY KEY)";
+    private static final String ADD_DELETED_SONG_SQL = "INSERT OR IGNORE INTO deleted_song_ids (id) VALUES (?)";
+    private static final String DELETE_SONGS_FROM_PLAYLISTS_SQL =
+        "DELETE FROM playlist_songs WHERE song_id IN (SELECT id FROM deleted_song_ids)";
+    private static final String DELETE_SONGS_LYRICS_SQL =
+        "DELETE FROM song_lyrics WHERE song_id IN (SELECT id FROM deleted_song_ids)";
+    private static final String DELETE_SONGS_SQL = "DELETE FROM songs WHERE id IN (SELECT id FROM deleted_song_ids)";
+    private static final String CLEAR_DELETED_SONGS_SQL = "DELETE FROM deleted_song_ids";
+    
     public void deleteSong(String songId) {
-        String sql = "DELETE FROM songs WHERE id = ?";
+        deleteSongs(Collections.singletonList(songId));
+    }
+    
+    /**
+     * Borra las canciones indicadas junto con sus letras y sus entradas en las
+     * playlists, en una sola transacción. Devuelve el número de canciones borradas.
+     */
+    public synchronized int deleteSongs(Collection<String> songIds) {
+        if (songIds == null || songIds.isEmpty()) {
+            return 0;
+        }
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, songId);
-            pstmt.executeUpdate();
+        int deleted = 0;
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                PreparedStatement add = statements.prepare(ADD_DELETED_SONG_SQL);
+                for (String songId : songIds) {
+                    add.setString(1, songId);
+                    add.addBatch();
+                }
+                add.executeBatch();
+                
+                statements.prepare(DELETE_SONGS_FROM_PLAYLISTS_SQL).executeUpdate();
+                statements.prepare(DELETE_SONGS_LYRICS_SQL).executeUpdate();
+                deleted = statements.prepare(DELETE_SONGS_SQL).executeUpdate();
+                statements.prepare(CLEAR_DELETED_SONGS_SQL).executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
         } catch (SQLException e) {
             e.printStackTrace();
+            return 0;
+        }
+        
+        for (String songId : songIds) {
+            lyricsCache.remove(songId);
         }
+        return deleted;
     }
     
     // Lyrics operations
-    public void updateSongLyrics(String songId, String lyrics) {
-        String sql = "UPDATE songs SET lyrics = ?, modified_date = ? WHERE id = ?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, lyrics);
-            pstmt.setLong(2, System.currentTimeMillis());
-            pstmt.setString(3, songId);
+    private static final String SAVE_LYRICS_SQL = """
+        INSERT INTO song_lyrics (song_id, lyrics) VALUES (?, ?)
+        ON CONFLICT(song_id) DO UPDATE SET lyrics = excluded.lyrics
+    """;
+    private static final String DELETE_LYRICS_SQL = "DELETE FROM song_lyrics WHERE song_id = ?";
+    private static final String SONG_LYRICS_SQL = "SELECT lyrics FROM song_lyrics WHERE song_id = ?";
+    private static final String TOUCH_SONG_SQL = "UPDATE songs SET modified_date = ? WHERE id = ?";
+    
+    // Marks a song known to have no lyrics in the cache
+    private static final String NO_LYRICS = "";
+    
+    private final int lyricsCacheSize = Math.max(1, AppConfig.getInt("database.lyrics.cache.size", 64));
+    private final Map<String, String> lyricsCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > lyricsCacheSize;
+        }
+    });
+    
+    public synchronized void updateSongLyrics(String songId, String lyrics) {
+        try {
+            writeLyrics(songId, lyrics);
+            cacheLyrics(songId, lyrics);
+            PreparedStatement pstmt = statements.prepare(TOUCH_SONG_SQL);
+            pstmt.setLong(1, System.currentTimeMillis());
+            pstmt.setString(2, songId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
     
+    /**
+     * Guarda las letras comprimidas, o las borra si están vacías. No toca la caché:
+     * el llamador la actualiza con cacheLyrics una vez confirmada la escritura.
+     */
+    private void writeLyrics(String songId, String lyrics) throws SQLException {
+        boolean empty = lyrics == null || lyrics.isEmpty();
+        PreparedStatement pstmt = statements.prepare(empty ? DELETE_LYRICS_SQL : SAVE_LYRICS_SQL);
+        pstmt.setString(1, songId);
+        if (!empty) {
+            pstmt.setBytes(2, LyricsCodec.compress(lyrics));
+        }
+        pstmt.executeUpdate();
+    }
+    
+    private void cacheLyrics(String songId, String lyrics) {
+        lyricsCache.put(songId, lyrics == null || lyrics.isEmpty() ? NO_LYRICS : lyrics);
+    }
+    
+    /**
+     * Letras de la canción, o null si no tiene. Las últimas consultadas se guardan
+     * en una caché LRU de database.lyrics.cache.size canciones; en una base de datos
+     * en memoria solo se guardan las escritas.
+     */
     public String getSongLyrics(String songId) {
-        String sql = "SELECT lyrics FROM songs WHERE id = ?";
+        String cached = lyricsCache.get(songId);
+        if (cached != null) {
+            return cached.isEmpty() ? null : cached;
+        }
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String lyrics = null;
+        try (ReadConnectionPool.Lease reader = borrowReader()) {
+            PreparedStatement pstmt = reader.prepare(SONG_LYRICS_SQL);
             pstmt.setString(1, songId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getString("lyrics");
+                    lyrics = LyricsCodec.decompress(rs.getBytes("lyrics"));
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
+        } catch (DataFormatException e) {
+            System.err.println("Letras dañadas para la canción " + songId + ": " + e.getMessage());
+            return null;
         }
         
-        return null;
+        // In-memory readers may see lyrics that are later rolled back, so only committed
+        // writes fill the cache there
+        if (!isInMemory()) {
+            lyricsCache.putIfAbsent(songId, lyrics != null ? lyrics : NO_LYRICS);
+        }
+        return lyrics;
     }
     
-    // Playlist operations
-    public void savePlaylist(Playlist playlist) {
-        String sql = """
-            INSERT OR REPLACE INTO playlists 
-            (id, name, description, created_date, modified_date)
-            VALUES (?, ?, ?, ?, ?)
-        """;
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, playlist.getId());
-            pstmt.setString(2, playlist.getName());
-            pstmt.setString(3, playlist.getDescription());
-            pstmt.setLong(4, playlist.getCreatedDate());
-            pstmt.setLong(5, playlist.getModifiedDate());
-            
+    // Library folder operations
+    private static final String ADD_LIBRARY_FOLDER_SQL = "INSERT OR IGNORE INTO library_folders (path, added_date) VALUES (?, ?)";
+    
+    public synchronized void addLibraryFolder(String path) {
+        try {
+            PreparedStatement pstmt = statements.prepare(ADD_LIBRARY_FOLDER_SQL);
+            pstmt.setString(1, path);
+            pstmt.setLong(2, System.currentTimeMillis());
             pstmt.executeUpdate();
-            
-            // Save playlist songs
-            savePlaylistSongs(playlist);
-            
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
     
-    private void savePlaylistSongs(Playlist playlist) {
-        // First, delete existing playlist songs
-        String deleteSql = "DELETE FROM playlist_songs WHERE playlist_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(deleteSql)) {
-            pstmt.setString(1, playlist.getId());
-            pstmt.executeUpdate();
+    private static final String LIBRARY_FOLDERS_SQL = "SELECT path FROM library_folders ORDER BY path";
+    
+    public List<String> getLibraryFolders() {
+        List<String> folders = new ArrayList<>();
+        try (ReadConnectionPool.Lease reader = borrowReader();
+             ResultSet rs = reader.prepare(LIBRARY_FOLDERS_SQL).executeQuery()) {
+            while (rs.next()) {
+                folders.add(rs.getString("path"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        
+        return folders;
+    }
+    
+    // Playlist operations
+    private static final String SAVE_PLAYLIST_SQL = """
+        INSERT INTO playlists (id, name, description, created_date, modified_date)
+        VALUES (?, ?, ?, ?, ?)
+        ON CONFLICT(id) DO UPDATE SET
+            name = excluded.name,
+            description = excluded.description,
+            created_date = excluded.created_date,
+            modified_date = excluded.modified_date
+    """;
+    
+    /**
+     * Guarda la playlist en una transacción, escribiendo solo las filas de
+     * canciones que cambian respecto a lo guardado (ver PlaylistDiff)
+     */
+    public synchronized void savePlaylist(Playlist playlist) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = statements.prepare(SAVE_PLAYLIST_SQL);
+                pstmt.setString(1, playlist.getId());
+                pstmt.setString(2, playlist.getName());
+                pstmt.setString(3, playlist.getDescription());
+                pstmt.setLong(4, playlist.getCreatedDate());
+                pstmt.setLong(5, playlist.getModifiedDate());
+                
+                pstmt.executeUpdate();
+                
+                // Save playlist songs
+                savePlaylistSongs(playlist);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
         } catch (SQLException e) {
             e.printStackTrace();
+        }
+    }
+    
+    private static final String PLAYLIST_POSITIONS_SQL = "SELECT song_id, position FROM playlist_songs WHERE playlist_id = ?";
+    private static final String DELETE_PLAYLIST_SONG_SQL = "DELETE FROM playlist_songs WHERE playlist_id = ? AND song_id = ?";
+    private static final String UPDATE_PLAYLIST_SONG_SQL = "UPDATE playlist_songs SET position = ? WHERE playlist_id = ? AND song_id = ?";
+    private static final String INSERT_PLAYLIST_SONG_SQL = "INSERT INTO playlist_songs (position, playlist_id, song_id) VALUES (?, ?, ?)";
+    
+    private void savePlaylistSongs(Playlist playlist) throws SQLException {
+        Map<String, Long> stored = new HashMap<>();
+        PreparedStatement positions = statements.prepare(PLAYLIST_POSITIONS_SQL);
+        positions.setString(1, playlist.getId());
+        try (ResultSet rs = positions.executeQuery()) {
+            while (rs.next()) {
+                stored.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        
+        // The ids, not the songs: a playlist whose songs are still loading keeps them all
+        PlaylistDiff diff = PlaylistDiff.compute(stored, playlist.getSongIds());
+        if (diff.isEmpty()) {
             return;
         }
         
-        // Then, insert current playlist songs
-        String insertSql = "INSERT INTO playlist_songs (playlist_id, song_id, position) VALUES (?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(insertSql)) {
-            List<Song> songs = playlist.getSongs();
-            for (int i = 0; i < songs.size(); i++) {
+        if (!diff.getDeletes().isEmpty()) {
+            PreparedStatement pstmt = statements.prepare(DELETE_PLAYLIST_SONG_SQL);
+            for (String songId : diff.getDeletes()) {
                 pstmt.setString(1, playlist.getId());
-                pstmt.setString(2, songs.get(i).getId());
-                pstmt.setInt(3, i);
+                pstmt.setString(2, songId);
                 pstmt.addBatch();
             }
             pstmt.executeBatch();
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
+        // Both statements take (position, playlist_id, song_id)
+        executePositions(UPDATE_PLAYLIST_SONG_SQL, playlist.getId(), diff.getUpdates());
+        executePositions(INSERT_PLAYLIST_SONG_SQL, playlist.getId(), diff.getInserts());
     }
     
+    private void executePositions(String sql, String playlistId, Map<String, Long> positions) throws SQLException {
+        if (positions.isEmpty()) {
+            return;
+        }
+        PreparedStatement pstmt = statements.prepare(sql);
+        for (Map.Entry<String, Long> entry : positions.entrySet()) {
+            pstmt.setLong(1, entry.getValue());
+            pstmt.setString(2, playlistId);
+            pstmt.setString(3, entry.getKey());
+            pstmt.addBatch();
+        }
+        pstmt.executeBatch();
+    }
+    
+    private static final String ALL_PLAYLIST_SONGS_SQL = """
+        SELECT ps.playlist_id, s.* FROM playlist_songs ps
+        JOIN songs s ON s.id = ps.song_id
+        ORDER BY ps.playlist_id, ps.position
+    """;
+    
+    /**
+     * Carga todas las playlists con sus canciones en dos consultas (playlists y
+     * luego todas sus entradas en orden), agrupando las canciones en memoria
+     */
     public List<Playlist> getAllPlaylists() {
         List<Playlist> playlists = new ArrayList<>();
-        String sql = "SELECT * FROM playlists ORDER BY name";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        Map<String, List<Song>> songsByPlaylist = new HashMap<>();
+        try (ReadConnectionPool.Lease reader = borrowReader()) {
+            playlists.addAll(readPlaylists(reader));
+            for (Playlist playlist : playlists) {
+                songsByPlaylist.put(playlist.getId(), new ArrayList<>());
+            }
             
-            while (rs.next()) {
-                Playlist playlist = new Playlist();
-                playlist.setId(rs.getString("id"));
-                playlist.setName(rs.getString("name"));
-                playlist.setDescription(rs.getString("description"));
-                playlist.setCreatedDate(rs.getLong("created_date"));
-                playlist.setModifiedDate(rs.getLong("modified_date"));
-                
-                // Load playlist songs
-                loadPlaylistSongs(playlist);
-                
-                playlists.add(playlist);
+            try (ResultSet rs = reader.prepare(ALL_PLAYLIST_SONGS_SQL).executeQuery()) {
+                SongRowMapper mapper = new SongRowMapper(rs);
+                int playlistId = rs.findColumn("playlist_id");
+                while (rs.next()) {
+                    List<Song> songs = songsByPlaylist.get(rs.getString(playlistId));
+                    if (songs != null) {
+                        songs.add(mapper.map(rs));
+                    }
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
         
+        for (Playlist playlist : playlists) {
+            long modifiedDate = playlist.getModifiedDate();
+            playlist.setSongs(songsByPlaylist.get(playlist.getId()));
+            playlist.setModifiedDate(modifiedDate); // setSongs() touches the date
+        }
         return playlists;
     }
     
-    private void loadPlaylistSongs(Playlist playlist) {
-        String sql = """
-            SELECT s.* FROM songs s
-            JOIN playlist_songs ps ON s.id = ps.song_id
-            WHERE ps.playlist_id = ?
-            ORDER BY ps.position
-        """;
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, playlist.getId());
+    private static final String ALL_PLAYLIST_SONG_IDS_SQL = "SELECT playlist_id, song_id FROM playlist_songs ORDER BY playlist_id, position";
+    
+    /**
+     * Carga todas las playlists con los ids de sus canciones, sin crear las
+     * canciones: cada playlist las busca con songResolver la primera vez que se
+     * accede a ellas (normalmente, en la biblioteca ya cargada)
+     */
+    public List<Playlist> getAllPlaylists(Function<String, Song> songResolver) {
+        return getAllPlaylists(songResolver, () -> true);
+    }
+    
+    /**
+     * Como getAllPlaylists(songResolver), pero los ids que no se encuentran siguen
+     * pendientes mientras resolverComplete devuelva false (ver Playlist.setSongIds)
+     */
+    public List<Playlist> getAllPlaylists(Function<String, Song> songResolver, BooleanSupplier resolverComplete) {
+        List<Playlist> playlists = new ArrayList<>();
+        Map<String, List<String>> idsByPlaylist = new HashMap<>();
+        try (ReadConnectionPool.Lease reader = borrowReader()) {
+            playlists.addAll(readPlaylists(reader));
+            for (Playlist playlist : playlists) {
+                idsByPlaylist.put(playlist.getId(), new ArrayList<>());
+            }
             
-            try (ResultSet rs = pstmt.executeQuery()) {
-                List<Song> songs = new ArrayList<>();
+            try (ResultSet rs = reader.prepare(ALL_PLAYLIST_SONG_IDS_SQL).executeQuery()) {
                 while (rs.next()) {
-                    Song song = new Song();
-                    song.setId(rs.getString("id"));
-                    song.setTitle(rs.getString("title"));
-                    song.setArtist(rs.getString("artist"));
-                    song.setAlbum(rs.getString("album"));
-                    song.setGenre(rs.getString("genre"));
-                    
-                    long durationSeconds = rs.getLong("duration_seconds");
-                    if (durationSeconds > 0) {
-                        song.setDuration(Duration.ofSeconds(durationSeconds));
+                    List<String> songIds = idsByPlaylist.get(rs.getString(1));
+                    if (songIds != null) {
+                        songIds.add(rs.getString(2));
                     }
-                    
-                    song.setFilePath(rs.getString("file_path"));
-                    song.setAlbumArt(rs.getString("album_art"));
-                    song.setTrackNumber(rs.getInt("track_number"));
-                    song.setYear(rs.getInt("year"));
-                    
-                    songs.add(song);
                 }
-                playlist.setSongs(songs);
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        
+        for (Playlist playlist : playlists) {
+            playlist.setSongIds(idsByPlaylist.get(playlist.getId()), songResolver, resolverComplete);
+        }
+        return playlists;
+    }
+    
+    private static final String ALL_PLAYLISTS_SQL = "SELECT * FROM playlists ORDER BY name";
+    
+    /**
+     * Lee las cabeceras de todas las playlists (sin canciones), ordenadas por nombre
+     */
+    private List<Playlist> readPlaylists(ReadConnectionPool.Lease reader) throws SQLException {
+        List<Playlist> playlists = new ArrayList<>();
+        try (ResultSet rs = reader.prepare(ALL_PLAYLISTS_SQL).executeQuery()) {
+            while (rs.next()) {
+                Playlist playlist = new Playlist();
+                playlist.setId(rs.getString("id"));
+                playlist.setName(rs.getString("name"));
+                playlist.setDescription(rs.getString("description"));
+                playlist.setCreatedDate(rs.getLong("created_date"));
+                playlist.setModifiedDate(rs.getLong("modified_date"));
+                playlists.add(playlist);
+            }
+        }
+        return playlists;
     }
     
     public void updatePlaylist(Playlist playlist) {
         savePlaylist(playlist); // Same as save for SQLite
     }
     
-    public void deletePlaylist(String playlistId) {
-        String sql = "DELETE FROM playlists WHERE id = ?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    private static final String DELETE_PLAYLIST_SQL = "DELETE FROM playlists WHERE id = ?";
+    
+    public synchronized void deletePlaylist(String playlistId) {
+        try {
+            PreparedStatement pstmt = statements.prepare(DELETE_PLAYLIST_SQL);
             pstmt.setString(1, playlistId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -349,7 +957,13 @@ public class DatabaseManager {
         }
     }
     
-    public void close() {
+    public synchronized void close() {
+        if (readPool != null) {
+            readPool.close();
+        }
+        if (statements != null) {
+            statements.close();
+        }
         try {
             if (connection != null && !connection.isClosed()) {
                 connection.close();
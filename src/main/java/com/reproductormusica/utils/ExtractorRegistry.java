@@ -0,0 +1,123 @@
+package com.reproductormusica.utils;
+
+import com.reproductormusica.model.Song;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Registro de extractores de metadatos por formato de audio.
+ *
+ * Solo admite los formatos habilitados (library.supported.formats). Antes de
+ * extraer nada lee los primeros bytes del archivo para confirmar el formato:
+ * si la firma no corresponde a la extensión se prueba con el resto de formatos
+ * habilitados, y si no coincide ninguno el archivo se descarta sin llegar a
+ * abrirlo con jaudiotagger.
+ */
+public class ExtractorRegistry {
+
+    /**
+     * Extrae los metadatos de un archivo de un formato ya confirmado
+     */
+    @FunctionalInterface
+    public interface Extractor {
+        void extract(File file, AudioFormat format, Song song);
+    }
+
+    private static final List<String> DEFAULT_FORMATS =
+        Arrays.asList("mp3", "wav", "flac", "ogg", "m4a", "aac", "wma");
+
+    private final Set<AudioFormat> enabled;
+    private final Map<AudioFormat, Extractor> extractors = new EnumMap<>(AudioFormat.class);
+
+    public ExtractorRegistry(Collection<AudioFormat> enabled) {
+        this.enabled = enabled.isEmpty() ? EnumSet.noneOf(AudioFormat.class) : EnumSet.copyOf(enabled);
+    }
+
+    /**
+     * Registro con los formatos de library.supported.formats; las extensiones
+     * desconocidas se ignoran con un aviso
+     */
+    public static ExtractorRegistry fromConfig() {
+        List<AudioFormat> formats = new ArrayList<>();
+        for (String extension : AppConfig.getList("library.supported.formats", DEFAULT_FORMATS)) {
+            AudioFormat format = AudioFormat.fromExtension(extension);
+            if (format != null) {
+                formats.add(format);
+            } else {
+                System.err.println("Formato de audio desconocido en la configuración: " + extension);
+            }
+        }
+        return new ExtractorRegistry(formats);
+    }
+
+    /**
+     * Asigna el extractor de un formato; los formatos sin extractor no se importan
+     */
+    public ExtractorRegistry register(AudioFormat format, Extractor extractor) {
+        extractors.put(format, extractor);
+        return this;
+    }
+
+    public boolean isEnabled(AudioFormat format) {
+        return format != null && enabled.contains(format) && extractors.containsKey(format);
+    }
+
+    public Set<AudioFormat> getEnabledFormats() {
+        return Collections.unmodifiableSet(enabled.stream()
+            .filter(extractors::containsKey)
+            .collect(Collectors.toCollection(() -> EnumSet.noneOf(AudioFormat.class))));
+    }
+
+    /**
+     * Indica por la extensión si el archivo es de un formato habilitado
+     */
+    public boolean supportsFileName(String fileName) {
+        return isEnabled(AudioFormat.fromFileName(fileName));
+    }
+
+    public Extractor getExtractor(AudioFormat format) {
+        return isEnabled(format) ? extractors.get(format) : null;
+    }
+
+    /**
+     * Formato real del archivo según sus primeros bytes, o null si no es de ningún
+     * formato habilitado. Primero se prueba el formato que indica la extensión.
+     */
+    public AudioFormat detect(File file) {
+        byte[] head = new byte[AudioFormat.SNIFF_LENGTH];
+        int length;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            length = in.readNBytes(head, 0, head.length);
+        } catch (IOException e) {
+            System.err.println("No se pudo leer " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+        return detect(file.getName(), head, length);
+    }
+
+    AudioFormat detect(String fileName, byte[] head, int length) {
+        AudioFormat byExtension = AudioFormat.fromFileName(fileName);
+        if (isEnabled(byExtension) && byExtension.matches(head, length)) {
+            return byExtension;
+        }
+        for (AudioFormat format : enabled) {
+            if (format != byExtension && isEnabled(format) && format.matches(head, length)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
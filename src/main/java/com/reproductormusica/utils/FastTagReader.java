@@ -0,0 +1,506 @@
+package com.reproductormusica.utils;
+
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.reference.GenreTypes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lector rápido de etiquetas que solo recorre las cabeceras del archivo.
+ *
+ * Para MP3 lee la etiqueta ID3v2 (o ID3v1 al final del archivo) y la cabecera
+ * Xing/Info o VBRI del primer frame para la duración; para FLAC lee los bloques
+ * STREAMINFO y VORBIS_COMMENT y salta el resto sin leerlos. Cuando el archivo
+ * tiene algo que no sabe interpretar devuelve null y el llamador debe usar
+ * jaudiotagger.
+ */
+public final class FastTagReader {
+
+    // Bytes scanned after the ID3v2 tag looking for the first MPEG frame
+    private static final int FRAME_SEARCH_WINDOW = 64 * 1024;
+
+    private static final int[][] SAMPLE_RATES = {
+        {11025, 12000, 8000},   // MPEG 2.5
+        null,                   // reserved
+        {22050, 24000, 16000},  // MPEG 2
+        {44100, 48000, 32000}   // MPEG 1
+    };
+
+    // Kbps by [MPEG 1 ? 0 : 1][layer index 1..3][bitrate index]
+    private static final int[][][] BITRATES = {
+        {
+            null,
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},      // Layer III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},     // Layer II
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448}   // Layer I
+        },
+        {
+            null,
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},          // Layer III
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},          // Layer II
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256}      // Layer I
+        }
+    };
+
+    /**
+     * Etiquetas y duración leídas de un archivo
+     */
+    public static final class Result {
+        private final Map<FieldKey, String> fields = new EnumMap<>(FieldKey.class);
+        private boolean hasTag;
+        private int durationSeconds;
+
+        /**
+         * Valor del campo o cadena vacía, como Tag.getFirst de jaudiotagger
+         */
+        public String getFirst(FieldKey key) {
+            return fields.getOrDefault(key, "");
+        }
+
+        public boolean hasTag() { return hasTag; }
+        public int getDurationSeconds() { return durationSeconds; }
+
+        private void set(FieldKey key, String value) {
+            hasTag = true;
+            if (key == FieldKey.TRACK && value != null && value.indexOf('/') >= 0) {
+                value = value.substring(0, value.indexOf('/')).trim(); // "3/12" reads as "3", like jaudiotagger
+            }
+            if (value != null && !value.isEmpty()) {
+                fields.putIfAbsent(key, value);
+            }
+        }
+    }
+
+    private FastTagReader() {}
+
+    /**
+     * Lee etiquetas y duración, o devuelve null si el formato no está soportado
+     * por la vía rápida o el archivo no se pudo interpretar
+     */
+    public static Result read(File audioFile) {
+        return read(audioFile, AudioFormat.fromFileName(audioFile.getName()));
+    }
+
+    /**
+     * Igual que read(File), pero con el formato ya detectado por sus primeros bytes
+     */
+    public static Result read(File audioFile, AudioFormat format) {
+        if (format != AudioFormat.MP3 && format != AudioFormat.FLAC) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(audioFile, "r")) {
+            return format == AudioFormat.MP3 ? readMp3(file) : readFlac(file);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Lectura rápida no disponible para " + audioFile.getName() + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    // ---------------------------------------------------------------- MP3
+
+    private static Result readMp3(RandomAccessFile file) throws IOException {
+        Result result = new Result();
+        long audioStart = 0;
+
+        byte[] header = new byte[10];
+        if (readAt(file, 0, header) == 10 && header[0] == 'I' && header[1] == 'D' && header[2] == '3') {
+            int version = header[3];
+            int flags = header[5] & 0xFF;
+            int size = syncsafe(header, 6);
+            // A corrupt size must not allocate more than the file can hold
+            if (version < 2 || version > 4 || size > file.length() - 10) {
+                return null;
+            }
+            byte[] tag = new byte[size];
+            if (readAt(file, 10, tag) != size) {
+                return null;
+            }
+            if (!readId3v2Frames(tag, version, flags, result)) {
+                return null;
+            }
+            audioStart = 10L + size + ((flags & 0x10) != 0 ? 10 : 0);
+        }
+
+        long audioEnd = file.length();
+        byte[] v1 = new byte[128];
+        if (audioEnd - audioStart >= 128 && readAt(file, audioEnd - 128, v1) == 128
+                && v1[0] == 'T' && v1[1] == 'A' && v1[2] == 'G') {
+            audioEnd -= 128;
+            if (!result.hasTag()) {
+                readId3v1(v1, result);
+            }
+        }
+
+        byte[] window = new byte[(int) Math.min(FRAME_SEARCH_WINDOW, Math.max(0, audioEnd - audioStart))];
+        int length = readAt(file, audioStart, window);
+        Integer duration = mp3Duration(window, length, audioEnd - audioStart);
+        if (duration == null) {
+            return null;
+        }
+        result.durationSeconds = duration;
+        return result;
+    }
+
+    /**
+     * Recorre los frames de texto de la etiqueta. Devuelve false si la etiqueta
+     * usa algo que este lector no interpreta (frames comprimidos o cifrados)
+     */
+    private static boolean readId3v2Frames(byte[] tag, int version, int flags, Result result) {
+        if (version < 4 && (flags & 0x80) != 0) {
+            tag = removeUnsynchronisation(tag, 0, tag.length);
+        }
+
+        int pos = 0;
+        if ((flags & 0x40) != 0 && version >= 3) {
+            // Extended header: v2.3 size excludes itself, v2.4 size is syncsafe and includes itself
+            pos = version == 3 ? 4 + readInt(tag, 0) : syncsafe(tag, 0);
+        }
+
+        int idLength = version == 2 ? 3 : 4;
+        int headerLength = version == 2 ? 6 : 10;
+        while (pos + headerLength <= tag.length && tag[pos] != 0) {
+            String id = new String(tag, pos, idLength, StandardCharsets.ISO_8859_1);
+            int frameSize;
+            int frameFlags = 0;
+            if (version == 2) {
+                frameSize = ((tag[pos + 3] & 0xFF) << 16) | ((tag[pos + 4] & 0xFF) << 8) | (tag[pos + 5] & 0xFF);
+            } else {
+                frameSize = version == 4 ? syncsafe(tag, pos + 4) : readInt(tag, pos + 4);
+                frameFlags = ((tag[pos + 8] & 0xFF) << 8) | (tag[pos + 9] & 0xFF);
+            }
+            int dataStart = pos + headerLength;
+            if (frameSize < 0 || dataStart + frameSize > tag.length) {
+                break; // Padding or a truncated frame: nothing else to read
+            }
+
+            FieldKey key = id3FieldKey(id);
+            if (key != null && frameSize > 1) {
+                if (isCompressedOrEncrypted(version, frameFlags)) {
+                    return false;
+                }
+                byte[] data = tag;
+                int start = dataStart;
+                int end = dataStart + frameSize;
+                if (version == 4 && (frameFlags & 0x0002) != 0) {
+                    data = removeUnsynchronisation(tag, start, end);
+                    start = 0;
+                    end = data.length;
+                }
+                String text = decodeText(data, start, end);
+                if (key == FieldKey.GENRE) {
+                    text = genreName(text);
+                }
+                result.set(key, text);
+            }
+            pos = dataStart + frameSize;
+        }
+        result.hasTag = true;
+        return true;
+    }
+
+    private static FieldKey id3FieldKey(String id) {
+        switch (id) {
+            case "TIT2": case "TT2": return FieldKey.TITLE;
+            case "TPE1": case "TP1": return FieldKey.ARTIST;
+            case "TALB": case "TAL": return FieldKey.ALBUM;
+            case "TCON": case "TCO": return FieldKey.GENRE;
+            case "TRCK": case "TRK": return FieldKey.TRACK;
+            case "TYER": case "TYE": case "TDRC": return FieldKey.YEAR;
+            default: return null;
+        }
+    }
+
+    private static boolean isCompressedOrEncrypted(int version, int frameFlags) {
+        if (version == 3) {
+            return (frameFlags & 0x00C0) != 0;
+        }
+        return version == 4 && (frameFlags & 0x000D) != 0;
+    }
+
+    /**
+     * Decodifica un frame de texto ID3v2 (byte de codificación + texto) y devuelve
+     * el primer valor
+     */
+    private static String decodeText(byte[] data, int start, int end) {
+        int encoding = data[start];
+        int from = start + 1;
+        Charset charset;
+        int unit = 2;
+        switch (encoding) {
+            case 0: charset = StandardCharsets.ISO_8859_1; unit = 1; break;
+            case 1: charset = StandardCharsets.UTF_16; break;
+            case 2: charset = StandardCharsets.UTF_16BE; break;
+            case 3: charset = StandardCharsets.UTF_8; unit = 1; break;
+            default: return null;
+        }
+        // Stop at the first terminator; later values in the frame are ignored
+        int to = from;
+        while (to + unit <= end && !(data[to] == 0 && (unit == 1 || data[to + 1] == 0))) {
+            to += unit;
+        }
+        return new String(data, from, to - from, charset).trim();
+    }
+
+    /**
+     * Traduce géneros ID3v1 escritos como "(17)" o "17" a su nombre
+     */
+    private static String genreName(String genre) {
+        if (genre == null) {
+            return null;
+        }
+        String id = genre;
+        if (id.startsWith("(") && id.indexOf(')') > 1) {
+            String rest = id.substring(id.indexOf(')') + 1).trim();
+            if (!rest.isEmpty()) {
+                return rest;
+            }
+            id = id.substring(1, id.indexOf(')'));
+        }
+        try {
+            String name = GenreTypes.getInstanceOf().getValueForId(Integer.parseInt(id));
+            return name != null ? name : genre;
+        } catch (NumberFormatException e) {
+            return genre;
+        }
+    }
+
+    private static void readId3v1(byte[] v1, Result result) {
+        result.set(FieldKey.TITLE, latin1(v1, 3, 30));
+        result.set(FieldKey.ARTIST, latin1(v1, 33, 30));
+        result.set(FieldKey.ALBUM, latin1(v1, 63, 30));
+        result.set(FieldKey.YEAR, latin1(v1, 93, 4));
+        if (v1[125] == 0 && v1[126] != 0) {
+            result.set(FieldKey.TRACK, String.valueOf(v1[126] & 0xFF));
+        }
+        String genre = GenreTypes.getInstanceOf().getValueForId(v1[127] & 0xFF);
+        if (genre != null) {
+            result.set(FieldKey.GENRE, genre);
+        }
+    }
+
+    /**
+     * Duración en segundos a partir del primer frame MPEG: usa el número de frames
+     * de la cabecera Xing/Info o VBRI y, si no hay, el bitrate del frame (CBR)
+     */
+    private static Integer mp3Duration(byte[] window, int length, long audioLength) {
+        for (int pos = 0; pos + 4 <= length; pos++) {
+            int frameLength = mpegFrameLength(window, pos);
+            if (frameLength <= 0) {
+                continue;
+            }
+            // Require a second frame right after the first to rule out false syncs
+            if (pos + frameLength + 4 <= length && mpegFrameLength(window, pos + frameLength) <= 0) {
+                continue;
+            }
+
+            int versionBits = (window[pos + 1] >> 3) & 0x03;
+            int layerBits = (window[pos + 1] >> 1) & 0x03;
+            boolean mpeg1 = versionBits == 3;
+            boolean mono = ((window[pos + 3] >> 6) & 0x03) == 3;
+            int sampleRate = SAMPLE_RATES[versionBits][(window[pos + 2] >> 2) & 0x03];
+            int bitrate = BITRATES[mpeg1 ? 0 : 1][layerBits][(window[pos + 2] >> 4) & 0x0F];
+            int samplesPerFrame = layerBits == 3 ? 384 : (layerBits == 1 && !mpeg1 ? 576 : 1152);
+
+            int sideInfo = mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+            int xing = pos + 4 + sideInfo;
+            if (xing + 12 <= length && (matches(window, xing, "Xing") || matches(window, xing, "Info"))) {
+                int flags = readInt(window, xing + 4);
+                if ((flags & 0x01) != 0) {
+                    long frames = readInt(window, xing + 8) & 0xFFFFFFFFL;
+                    return (int) Math.round((double) frames * samplesPerFrame / sampleRate);
+                }
+            }
+            int vbri = pos + 4 + 32;
+            if (vbri + 18 <= length && matches(window, vbri, "VBRI")) {
+                long frames = readInt(window, vbri + 14) & 0xFFFFFFFFL;
+                return (int) Math.round((double) frames * samplesPerFrame / sampleRate);
+            }
+            return (int) Math.round((audioLength - pos) * 8.0 / (bitrate * 1000.0));
+        }
+        return null;
+    }
+
+    /**
+     * Longitud del frame MPEG que empieza en pos, o -1 si no hay una cabecera válida
+     */
+    private static int mpegFrameLength(byte[] data, int pos) {
+        if ((data[pos] & 0xFF) != 0xFF || (data[pos + 1] & 0xE0) != 0xE0) {
+            return -1;
+        }
+        int versionBits = (data[pos + 1] >> 3) & 0x03;
+        int layerBits = (data[pos + 1] >> 1) & 0x03;
+        int bitrateIndex = (data[pos + 2] >> 4) & 0x0F;
+        int sampleRateIndex = (data[pos + 2] >> 2) & 0x03;
+        if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return -1;
+        }
+        boolean mpeg1 = versionBits == 3;
+        int padding = (data[pos + 2] >> 1) & 0x01;
+        int bitrate = BITRATES[mpeg1 ? 0 : 1][layerBits][bitrateIndex] * 1000;
+        int sampleRate = SAMPLE_RATES[versionBits][sampleRateIndex];
+        if (layerBits == 3) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        int samplesPerFrame = layerBits == 1 && !mpeg1 ? 576 : 1152;
+        return samplesPerFrame / 8 * bitrate / sampleRate + padding;
+    }
+
+    // ---------------------------------------------------------------- FLAC
+
+    private static Result readFlac(RandomAccessFile file) throws IOException {
+        byte[] marker = new byte[10];
+        long pos = 0;
+        if (readAt(file, 0, marker) == 10 && matches(marker, 0, "ID3")) {
+            pos = 10L + syncsafe(marker, 6);
+            readAt(file, pos, marker);
+        }
+        if (!matches(marker, 0, "fLaC")) {
+            return null;
+        }
+        pos += 4;
+
+        Result result = new Result();
+        boolean streamInfo = false;
+        byte[] blockHeader = new byte[4];
+        boolean last = false;
+        while (!last && readAt(file, pos, blockHeader) == 4) {
+            last = (blockHeader[0] & 0x80) != 0;
+            int type = blockHeader[0] & 0x7F;
+            int length = ((blockHeader[1] & 0xFF) << 16) | ((blockHeader[2] & 0xFF) << 8) | (blockHeader[3] & 0xFF);
+            pos += 4;
+            if (type == 0 || type == 4) {
+                if (length > file.length() - pos) {
+                    return null;
+                }
+                byte[] block = new byte[length];
+                if (readAt(file, pos, block) != length) {
+                    return null;
+                }
+                if (type == 0) {
+                    result.durationSeconds = flacDuration(block);
+                    streamInfo = true;
+                } else {
+                    readVorbisComments(block, result);
+                }
+            }
+            pos += length;
+        }
+        return streamInfo ? result : null;
+    }
+
+    private static int flacDuration(byte[] streamInfo) {
+        int sampleRate = ((streamInfo[10] & 0xFF) << 12) | ((streamInfo[11] & 0xFF) << 4) | ((streamInfo[12] & 0xF0) >> 4);
+        long totalSamples = ((long) (streamInfo[13] & 0x0F) << 32) | (readInt(streamInfo, 14) & 0xFFFFFFFFL);
+        return sampleRate > 0 ? (int) Math.round((double) totalSamples / sampleRate) : 0;
+    }
+
+    private static void readVorbisComments(byte[] block, Result result) {
+        int pos = 4 + readIntLE(block, 0); // Skip the vendor string
+        int count = readIntLE(block, pos);
+        pos += 4;
+        for (int i = 0; i < count && pos + 4 <= block.length; i++) {
+            int length = readIntLE(block, pos);
+            pos += 4;
+            if (length < 0 || pos + length > block.length) {
+                break;
+            }
+            String comment = new String(block, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+
+            int separator = comment.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            FieldKey key = vorbisFieldKey(comment.substring(0, separator).toUpperCase(Locale.ROOT));
+            if (key != null) {
+                result.set(key, comment.substring(separator + 1).trim());
+            }
+        }
+        result.hasTag = true;
+    }
+
+    private static FieldKey vorbisFieldKey(String name) {
+        switch (name) {
+            case "TITLE": return FieldKey.TITLE;
+            case "ARTIST": return FieldKey.ARTIST;
+            case "ALBUM": return FieldKey.ALBUM;
+            case "GENRE": return FieldKey.GENRE;
+            case "TRACKNUMBER": return FieldKey.TRACK;
+            case "DATE": return FieldKey.YEAR;
+            default: return null;
+        }
+    }
+
+    // ---------------------------------------------------------------- Bytes
+
+    private static int readAt(RandomAccessFile file, long position, byte[] buffer) throws IOException {
+        if (position < 0 || position >= file.length()) {
+            return 0;
+        }
+        file.seek(position);
+        int total = 0;
+        while (total < buffer.length) {
+            int read = file.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static byte[] removeUnsynchronisation(byte[] data, int start, int end) {
+        byte[] out = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            out[length++] = data[i];
+            if ((data[i] & 0xFF) == 0xFF && i + 1 < end && data[i + 1] == 0) {
+                i++;
+            }
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    private static boolean matches(byte[] data, int pos, String ascii) {
+        if (pos + ascii.length() > data.length) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (data[pos + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String latin1(byte[] data, int pos, int length) {
+        int end = pos;
+        while (end < pos + length && data[end] != 0) {
+            end++;
+        }
+        return new String(data, pos, end - pos, StandardCharsets.ISO_8859_1).trim();
+    }
+
+    private static int syncsafe(byte[] data, int pos) {
+        return ((data[pos] & 0x7F) << 21) | ((data[pos + 1] & 0x7F) << 14)
+             | ((data[pos + 2] & 0x7F) << 7) | (data[pos + 3] & 0x7F);
+    }
+
+    private static int readInt(byte[] data, int pos) {
+        return ((data[pos] & 0xFF) << 24) | ((data[pos + 1] & 0xFF) << 16)
+             | ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF);
+    }
+
+    private static int readIntLE(byte[] data, int pos) {
+        return (data[pos] & 0xFF) | ((data[pos + 1] & 0xFF) << 8)
+             | ((data[pos + 2] & 0xFF) << 16) | ((data[pos + 3] & 0xFF) << 24);
+    }
+}
@@ -0,0 +1,292 @@
+package com.reproductormusica.utils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vigila las carpetas de la biblioteca y agrupa los cambios de archivos.
+ *
+ * Los eventos de un mismo archivo se combinan (crear y luego borrar se anulan,
+ * varias modificaciones cuentan como una) y se entregan juntos cuando la carpeta
+ * lleva un tiempo sin cambios, de modo que copiar un álbum entero produce un
+ * único lote en lugar de miles de eventos.
+ */
+public class FolderWatcher {
+
+    /**
+     * Recibe los cambios netos acumulados desde la última entrega
+     */
+    public interface Listener {
+        /**
+         * @param updated archivos creados o modificados
+         * @param deleted archivos o carpetas eliminados
+         */
+        void onChanges(Set<Path> updated, Set<Path> deleted);
+
+        /**
+         * Se perdieron eventos de una carpeta raíz y conviene reescanearla entera
+         */
+        void onOverflow(Path root);
+    }
+
+    private enum Change { CREATED, MODIFIED, DELETED }
+
+    private final Listener listener;
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final Map<Path, Path> rootsByDirectory = new ConcurrentHashMap<>();
+    // Roots watched without their subfolders
+    private final Set<Path> flatRoots = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private final Thread pollThread;
+
+    // Guarded by this
+    private final Map<Path, Change> pendingChanges = new HashMap<>();
+    private ScheduledFuture<?> pendingFlush;
+    private long firstPendingEvent;
+
+    public FolderWatcher(Listener listener) throws IOException {
+        this(listener, AppConfig.getLong("library.watch.debounce.ms", 2000));
+    }
+
+    public FolderWatcher(Listener listener, long debounceMillis) throws IOException {
+        this.listener = listener;
+        this.debounceMillis = debounceMillis;
+        // A continuous stream of events must not postpone delivery forever
+        this.maxDelayMillis = debounceMillis * 10;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "folder-watcher-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        this.pollThread = new Thread(this::pollEvents, "folder-watcher");
+        this.pollThread.setDaemon(true);
+        this.pollThread.start();
+    }
+
+    /**
+     * Empieza a vigilar una carpeta raíz y, según library.scan.subdirectories,
+     * sus subcarpetas
+     */
+    public void watch(Path root) throws IOException {
+        watch(root, AppConfig.getBoolean("library.scan.subdirectories", true));
+    }
+
+    /**
+     * Empieza a vigilar una carpeta raíz
+     *
+     * @param recursive si también se vigilan sus subcarpetas, incluidas las que se creen después
+     */
+    public void watch(Path root, boolean recursive) throws IOException {
+        Path absoluteRoot = root.toAbsolutePath();
+        if (recursive) {
+            flatRoots.remove(absoluteRoot);
+        } else {
+            flatRoots.add(absoluteRoot);
+        }
+        registerTree(absoluteRoot, absoluteRoot);
+    }
+
+    public void close() {
+        pollThread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void registerTree(Path root, Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(root) && flatRoots.contains(root)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (!rootsByDirectory.containsKey(dir)) {
+                    WatchKey key = dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                    watchedDirectories.put(key, dir);
+                    rootsByDirectory.put(dir, root);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void pollEvents() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = watchedDirectories.get(key);
+            if (directory != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    handleEvent(directory, event);
+                }
+            }
+
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+                if (directory != null) {
+                    rootsByDirectory.remove(directory);
+                }
+            }
+        }
+    }
+
+    private void handleEvent(Path directory, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            Path root = rootsByDirectory.get(directory);
+            listener.onOverflow(root != null ? root : directory);
+            return;
+        }
+
+        Path root = rootsByDirectory.get(directory);
+        boolean flat = root != null && flatRoots.contains(root);
+        if (flat && !directory.equals(root)) {
+            // Registered before the root was watched without its subfolders
+            return;
+        }
+
+        Path path = directory.resolve((Path) event.context());
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+            if (Files.isDirectory(path)) {
+                if (flat) {
+                    return;
+                }
+                // Files copied into a new folder before it is registered would be missed otherwise
+                registerNewDirectory(directory, path);
+            } else {
+                record(path, Change.CREATED);
+            }
+        } else if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+            if (!Files.isDirectory(path)) {
+                record(path, Change.MODIFIED);
+            }
+        } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            record(path, Change.DELETED);
+        }
+    }
+
+    private void registerNewDirectory(Path parent, Path directory) {
+        Path root = rootsByDirectory.getOrDefault(parent, parent);
+        try {
+            registerTree(root, directory);
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    record(file, Change.CREATED);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("No se pudo vigilar " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized void record(Path path, Change change) {
+        Change merged = merge(pendingChanges.get(path), change);
+        if (merged == null) {
+            pendingChanges.remove(path);
+        } else {
+            pendingChanges.put(path, merged);
+        }
+
+        long now = System.currentTimeMillis();
+        if (pendingFlush == null) {
+            firstPendingEvent = now;
+        } else {
+            pendingFlush.cancel(false);
+        }
+        long delay = Math.min(debounceMillis, Math.max(0, firstPendingEvent + maxDelayMillis - now));
+        pendingFlush = scheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Combina el cambio pendiente de un archivo con uno nuevo; null significa que no hay cambio neto
+     */
+    private static Change merge(Change previous, Change next) {
+        if (previous == null) {
+            return next;
+        }
+        switch (previous) {
+            case CREATED:
+                return next == Change.DELETED ? null : Change.CREATED;
+            case DELETED:
+                return next == Change.DELETED ? Change.DELETED : Change.MODIFIED;
+            default:
+                return next == Change.DELETED ? Change.DELETED : Change.MODIFIED;
+        }
+    }
+
+    private void flush() {
+        Set<Path> updated = new LinkedHashSet<>();
+        Set<Path> deleted = new LinkedHashSet<>();
+        synchronized (this) {
+            for (Map.Entry<Path, Change> entry : pendingChanges.entrySet()) {
+                if (entry.getValue() == Change.DELETED) {
+                    deleted.add(entry.getKey());
+                } else {
+                    updated.add(entry.getKey());
+                }
+            }
+            pendingChanges.clear();
+            pendingFlush = null;
+        }
+
+        if (!updated.isEmpty() || !deleted.isEmpty()) {
+            try {
+                listener.onChanges(updated, deleted);
+            } catch (Exception e) {
+                System.err.println("Error procesando cambios de carpetas: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.reproductormusica.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Diario de una importación en curso, para poder retomarla si la aplicación se
+ * cierra a mitad.
+ *
+ * Es un archivo de texto al que solo se agregan líneas: primero el tipo de
+ * importación y sus orígenes (archivos o carpeta), y después, por cada lote
+ * guardado en la base de datos, las rutas del lote seguidas de una marca de
+ * lote confirmado. Cada lote se fuerza a disco antes de continuar. Al leerlo
+ * solo cuentan las rutas seguidas de una marca, de modo que un lote a medio
+ * escribir se descarta y se vuelve a leer. Cuando la importación termina o se
+ * cancela, el diario se borra.
+ */
+public class ImportJournal implements Closeable {
+
+    public enum Kind {
+        FILES,
+        FOLDER
+    }
+
+    private static final String HEADER = "IMPORT-JOURNAL 1";
+    private static final String SUFFIX = ".journal";
+
+    private final Path file;
+    private final FileChannel channel;
+    private long committedBatches;
+    private long committedFiles;
+
+    private ImportJournal(Path file, FileChannel channel, long committedBatches, long committedFiles) {
+        this.file = file;
+        this.channel = channel;
+        this.committedBatches = committedBatches;
+        this.committedFiles = committedFiles;
+    }
+
+    /**
+     * Crea el diario de una nueva importación dentro de directory
+     */
+    public static ImportJournal create(Path directory, Kind kind, Collection<String> sources) throws IOException {
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, "import-", SUFFIX);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        ImportJournal journal = new ImportJournal(file, channel, 0, 0);
+
+        StringBuilder header = new StringBuilder(HEADER).append('\n');
+        header.append("K ").append(kind.name()).append('\n');
+        for (String source : sources) {
+            header.append("S ").append(escape(source)).append('\n');
+        }
+        header.append("C 0 0\n"); // The header only counts once it is complete
+        journal.append(header);
+        return journal;
+    }
+
+    /**
+     * Reabre el diario de una importación interrumpida para seguir agregando lotes
+     */
+    public static ImportJournal resume(Pending pending) throws IOException {
+        FileChannel channel = FileChannel.open(pending.file, StandardOpenOption.WRITE);
+        // Drop a batch that was cut off half way, so new lines start after the last mark
+        channel.truncate(pending.committedLength);
+        channel.position(pending.committedLength);
+        return new ImportJournal(pending.file, channel, pending.committedBatches, pending.completed.size());
+    }
+
+    /**
+     * Registra un lote ya confirmado en la base de datos y lo fuerza a disco
+     */
+    public synchronized void recordBatch(Collection<String> paths) throws IOException {
+        if (paths.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String path : paths) {
+            lines.append("F ").append(escape(path)).append('\n');
+        }
+        committedBatches++;
+        committedFiles += paths.size();
+        lines.append("C ").append(committedBatches).append(' ').append(committedFiles).append('\n');
+        append(lines);
+    }
+
+    /**
+     * Cierra y borra el diario: la importación terminó y no hay nada que retomar
+     */
+    public synchronized void finish() {
+        close();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("No se pudo borrar el diario " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cierra el diario sin borrarlo, dejándolo para retomarlo más adelante
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error cerrando el diario " + file + ": " + e.getMessage());
+        }
+    }
+
+    public Path getFile() { return file; }
+    public synchronized long getCommittedBatches() { return committedBatches; }
+    public synchronized long getCommittedFiles() { return committedFiles; }
+
+    private void append(CharSequence text) throws IOException {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(text.toString());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Importación interrumpida leída de un diario
+     */
+    public static final class Pending {
+        private final Path file;
+        private final Kind kind;
+        private final List<String> sources;
+        private final Set<String> completed;
+        private final long committedBatches;
+        private final long committedLength;
+
+        private Pending(Path file, Kind kind, List<String> sources, Set<String> completed,
+                        long committedBatches, long committedLength) {
+            this.file = file;
+            this.kind = kind;
+            this.sources = sources;
+            this.completed = completed;
+            this.committedBatches = committedBatches;
+            this.committedLength = committedLength;
+        }
+
+        public Path getFile() { return file; }
+        public Kind getKind() { return kind; }
+        public List<String> getSources() { return sources; }
+
+        /**
+         * Rutas ya guardadas en lotes confirmados
+         */
+        public Set<String> getCompleted() { return completed; }
+
+        public long getCommittedBatches() { return committedBatches; }
+
+        /**
+         * Borra el diario sin retomarlo
+         */
+        public void discard() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("No se pudo borrar el diario " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Importaciones interrumpidas que quedaron en directory, de la más antigua a la
+     * más reciente. Los diarios ilegibles se descartan.
+     */
+    public static List<Pending> findPending(Path directory) {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            System.err.println("Error leyendo diarios de importación: " + e.getMessage());
+            return Collections.emptyList();
+        }
+        files.sort((a, b) -> Long.compare(a.toFile().lastModified(), b.toFile().lastModified()));
+
+        List<Pending> pending = new ArrayList<>();
+        for (Path file : files) {
+            try {
+                Pending journal = read(file);
+                if (journal != null) {
+                    pending.add(journal);
+                } else {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                System.err.println("Diario de importación ilegible " + file + ": " + e.getMessage());
+            }
+        }
+        return pending;
+    }
+
+    static Pending read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                return null;
+            }
+            Kind kind = null;
+            List<String> sources = new ArrayList<>();
+            Set<String> completed = new HashSet<>();
+            List<String> batch = new ArrayList<>();
+            long batches = 0;
+            long length = HEADER.length() + 1;
+            long committedLength = -1;
+            long fileSize = Files.size(file);
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                length += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                if (length > fileSize || line.length() < 2 || line.charAt(1) != ' ') {
+                    break; // Torn write at the end of the file
+                }
+                String value = line.substring(2);
+                switch (line.charAt(0)) {
+                    case 'K':
+                        kind = Kind.valueOf(value);
+                        break;
+                    case 'S':
+                        sources.add(unescape(value));
+                        break;
+                    case 'F':
+                        batch.add(unescape(value));
+                        break;
+                    case 'C':
+                        completed.addAll(batch);
+                        batch.clear();
+                        try {
+                            batches = Long.parseLong(value.split(" ")[0]);
+                        } catch (NumberFormatException e) {
+                            break;
+                        }
+                        committedLength = length;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (kind == null || sources.isEmpty() || committedLength < 0) {
+                return null;
+            }
+            return new Pending(file, kind, sources, completed, batches, committedLength);
+        }
+    }
+
+    private static String escape(String path) {
+        return path.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                out.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
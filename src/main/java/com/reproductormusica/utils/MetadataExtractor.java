@@ -7,56 +7,69 @@ import org.jaudiotagger.tag.FieldKey;
 import org.jaudiotagger.tag.Tag;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Duration;
 import java.util.UUID;
+import java.util.function.Function;
 
 /**
  * Utilidad para extraer metadatos de archivos de audio
  */
 public class MetadataExtractor {
     
+    // Header-only reader for MP3/FLAC; jaudiotagger remains the fallback
+    private static final boolean FAST_READER_ENABLED = AppConfig.getBoolean("metadata.fast.reader", true);
+    
+    // Cheapest extractor per format, limited to library.supported.formats
+    private static final ExtractorRegistry REGISTRY = ExtractorRegistry.fromConfig()
+        .register(AudioFormat.MP3, MetadataExtractor::readHeadersOrTags)
+        .register(AudioFormat.FLAC, MetadataExtractor::readHeadersOrTags)
+        .register(AudioFormat.WAV, MetadataExtractor::readTags)
+        .register(AudioFormat.OGG, MetadataExtractor::readTags)
+        .register(AudioFormat.M4A, MetadataExtractor::readTags)
+        .register(AudioFormat.WMA, MetadataExtractor::readTags)
+        .register(AudioFormat.AAC, MetadataExtractor::readFileNameOnly); // Raw ADTS has no tags
+    
+    /**
+     * Extrae los metadatos del archivo, o devuelve null si sus primeros bytes no
+     * corresponden a ningún formato soportado
+     */
     public static Song extractMetadata(File audioFile) {
+        AudioFormat format = REGISTRY.detect(audioFile);
+        if (format == null) {
+            System.err.println("Formato no reconocido, se omite: " + audioFile.getName());
+            return null;
+        }
+        
         Song song = new Song();
-        song.setId(UUID.randomUUID().toString());
+        song.setId(songIdForFile(audioFile));
         song.setFilePath(audioFile.getAbsolutePath());
-        
+        readFileState(audioFile, song);
+        REGISTRY.getExtractor(format).extract(audioFile, format, song);
+        return song;
+    }
+    
+    private static void readHeadersOrTags(File audioFile, AudioFormat format, Song song) {
+        if (FAST_READER_ENABLED) {
+            FastTagReader.Result header = FastTagReader.read(audioFile, format);
+            if (header != null) {
+                applyTags(song, audioFile, header.hasTag() ? header::getFirst : null);
+                song.setDuration(Duration.ofSeconds(header.getDurationSeconds()));
+                return;
+            }
+        }
+        readTags(audioFile, format, song);
+    }
+    
+    private static void readTags(File audioFile, AudioFormat format, Song song) {
         try {
-            AudioFile f = AudioFileIO.read(audioFile);
+            // Read as the sniffed format, which may differ from the file extension
+            AudioFile f = AudioFileIO.readAs(audioFile, format.getExtension());
             Tag tag = f.getTag();
-            
-            if (tag != null) {
-                song.setTitle(getOrDefault(tag.getFirst(FieldKey.TITLE), audioFile.getName()));
-                song.setArtist(getOrDefault(tag.getFirst(FieldKey.ARTIST), "Unknown Artist"));
-                song.setAlbum(getOrDefault(tag.getFirst(FieldKey.ALBUM), "Unknown Album"));
-                song.setGenre(getOrDefault(tag.getFirst(FieldKey.GENRE), "Unknown"));
-                
-                // Track number
-                String trackStr = tag.getFirst(FieldKey.TRACK);
-                if (trackStr != null && !trackStr.isEmpty()) {
-                    try {
-                        // Handle formats like "1/12" or just "1"
-                        String[] parts = trackStr.split("/");
-                        song.setTrackNumber(Integer.parseInt(parts[0]));
-                    } catch (NumberFormatException e) {
-                        song.setTrackNumber(0);
-                    }
-                }
-                
-                // Year
-                String yearStr = tag.getFirst(FieldKey.YEAR);
-                if (yearStr != null && !yearStr.isEmpty()) {
-                    try {
-                        song.setYear(Integer.parseInt(yearStr));
-                    } catch (NumberFormatException e) {
-                        song.setYear(0);
-                    }
-                }
-            } else {
-                // No metadata available, use filename
-                song.setTitle(removeExtension(audioFile.getName()));
-                song.setArtist("Unknown Artist");
-                song.setAlbum("Unknown Album");
-            }
+            applyTags(song, audioFile, tag != null ? tag::getFirst : null);
             
             // Duration
             if (f.getAudioHeader() != null) {
@@ -65,16 +78,81 @@ public class MetadataExtractor {
             }
             
         } catch (Exception e) {
-            System.err.println("Error extracting metadata from: " + audioFile.getName());
-            e.printStackTrace();
-            
-            // Fallback to filename
+            System.err.println("Error extracting metadata from: " + audioFile.getName() + ": " + e.getMessage());
+            readFileNameOnly(audioFile, format, song);
+        }
+    }
+    
+    private static void readFileNameOnly(File audioFile, AudioFormat format, Song song) {
+        applyTags(song, audioFile, null);
+    }
+    
+    /**
+     * Copia las etiquetas a la canción; tag es null si el archivo no tiene etiquetas
+     */
+    private static void applyTags(Song song, File audioFile, Function<FieldKey, String> tag) {
+        if (tag == null) {
+            // No metadata available, use filename
             song.setTitle(removeExtension(audioFile.getName()));
             song.setArtist("Unknown Artist");
             song.setAlbum("Unknown Album");
+            return;
         }
         
-        return song;
+        song.setTitle(getOrDefault(tag.apply(FieldKey.TITLE), audioFile.getName()));
+        song.setArtist(getOrDefault(tag.apply(FieldKey.ARTIST), "Unknown Artist"));
+        song.setAlbum(getOrDefault(tag.apply(FieldKey.ALBUM), "Unknown Album"));
+        song.setGenre(getOrDefault(tag.apply(FieldKey.GENRE), "Unknown"));
+        
+        // Track number
+        String trackStr = tag.apply(FieldKey.TRACK);
+        if (trackStr != null && !trackStr.isEmpty()) {
+            try {
+                // Handle formats like "1/12" or just "1"
+                String[] parts = trackStr.split("/");
+                song.setTrackNumber(Integer.parseInt(parts[0]));
+            } catch (NumberFormatException e) {
+                song.setTrackNumber(0);
+            }
+        }
+        
+        // Year
+        String yearStr = tag.apply(FieldKey.YEAR);
+        if (yearStr != null && !yearStr.isEmpty()) {
+            try {
+                song.setYear(Integer.parseInt(yearStr));
+            } catch (NumberFormatException e) {
+                song.setYear(0);
+            }
+        }
+    }
+    
+    /**
+     * Id estable de la canción, derivado de la ruta canónica del archivo, de modo que
+     * importar dos veces el mismo archivo produce siempre el mismo id
+     */
+    public static String songIdForFile(File audioFile) {
+        String path;
+        try {
+            path = audioFile.getCanonicalPath();
+        } catch (IOException e) {
+            path = audioFile.getAbsolutePath();
+        }
+        return UUID.nameUUIDFromBytes(path.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+    
+    /**
+     * Guarda tamaño, fecha de modificación e inodo del archivo en la canción
+     */
+    private static void readFileState(File audioFile, Song song) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(audioFile.toPath(), BasicFileAttributes.class);
+            song.setFileSize(attrs.size());
+            song.setFileMtime(attrs.lastModifiedTime().toMillis());
+            song.setFileInode(attrs.fileKey() != null ? attrs.fileKey().toString() : null);
+        } catch (IOException e) {
+            System.err.println("Error leyendo atributos de: " + audioFile.getName());
+        }
     }
     
     private static String getOrDefault(String value, String defaultValue) {
@@ -97,13 +175,14 @@ public class MetadataExtractor {
             return false;
         }
         
-        String name = file.getName().toLowerCase();
-        return name.endsWith(".mp3") || 
-               name.endsWith(".wav") || 
-               name.endsWith(".flac") || 
-               name.endsWith(".ogg") || 
-               name.endsWith(".m4a") || 
-               name.endsWith(".aac") ||
-               name.endsWith(".wma");
+        return isSupportedAudioFileName(file.getName());
+    }
+    
+    /**
+     * Verifica por la extensión si un nombre de archivo corresponde a un formato
+     * habilitado en library.supported.formats
+     */
+    public static boolean isSupportedAudioFileName(String fileName) {
+        return REGISTRY.supportsFileName(fileName);
     }
 }
@@ -0,0 +1,171 @@
+package com.reproductormusica.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cambios mínimos para pasar las filas guardadas de una playlist a su orden actual.
+ *
+ * Las posiciones se guardan con huecos (POSITION_GAP entre canciones seguidas) para
+ * que mover o insertar una canción solo toque su fila: recibe una posición entre
+ * las de sus nuevas vecinas. Las canciones que conservan su orden relativo (la
+ * subsecuencia creciente más larga de posiciones guardadas) no se tocan. Solo si
+ * no queda hueco entre dos vecinas se renumera la playlist entera.
+ */
+final class PlaylistDiff {
+
+    static final long POSITION_GAP = 1024;
+
+    private final List<String> deletes = new ArrayList<>();
+    private final Map<String, Long> updates = new LinkedHashMap<>();
+    private final Map<String, Long> inserts = new LinkedHashMap<>();
+    private boolean renumbered;
+
+    private PlaylistDiff() {
+    }
+
+    /**
+     * @param stored  posición guardada de cada canción de la playlist
+     * @param desired ids de las canciones en el orden actual (los repetidos se ignoran)
+     */
+    static PlaylistDiff compute(Map<String, Long> stored, List<String> desired) {
+        PlaylistDiff diff = new PlaylistDiff();
+        List<String> order = new ArrayList<>(new LinkedHashSet<>(desired));
+        Set<String> wanted = new LinkedHashSet<>(order);
+        for (String songId : stored.keySet()) {
+            if (!wanted.contains(songId)) {
+                diff.deletes.add(songId);
+            }
+        }
+
+        int n = order.size();
+        long[] positions = new long[n];
+        boolean[] anchored = keptInOrder(order, stored);
+        for (int i = 0; i < n; i++) {
+            if (anchored[i]) {
+                positions[i] = stored.get(order.get(i));
+            }
+        }
+        if (!fillGaps(positions, anchored)) {
+            // No room left between two neighbours: spread the whole playlist again
+            diff.renumbered = true;
+            for (int i = 0; i < n; i++) {
+                positions[i] = (i + 1) * POSITION_GAP;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            String songId = order.get(i);
+            Long current = stored.get(songId);
+            if (current == null) {
+                diff.inserts.put(songId, positions[i]);
+            } else if (current != positions[i]) {
+                diff.updates.put(songId, positions[i]);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Marca las canciones ya guardadas que forman la subsecuencia más larga con
+     * posiciones crecientes: son las que pueden quedarse donde están
+     */
+    private static boolean[] keptInOrder(List<String> order, Map<String, Long> stored) {
+        int n = order.size();
+        boolean[] kept = new boolean[n];
+        // tails[k]: index in order of the smallest tail of an increasing run of length k + 1
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        long[] tailPositions = new long[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            Long position = stored.get(order.get(i));
+            if (position == null) {
+                continue;
+            }
+            int k = Arrays.binarySearch(tailPositions, 0, length, position);
+            if (k < 0) {
+                k = -k - 1;
+            }
+            tailPositions[k] = position;
+            tails[k] = i;
+            previous[i] = k > 0 ? tails[k - 1] : -1;
+            if (k == length) {
+                length++;
+            }
+        }
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            kept[i] = true;
+        }
+        return kept;
+    }
+
+    /**
+     * Da posición a cada tramo de canciones no fijas entre las fijas que lo rodean.
+     * Devuelve false si algún tramo no cabe entre sus vecinas.
+     */
+    private static boolean fillGaps(long[] positions, boolean[] anchored) {
+        int n = positions.length;
+        int i = 0;
+        while (i < n) {
+            if (anchored[i]) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < n && !anchored[end]) {
+                end++;
+            }
+            int count = end - i;
+            boolean hasLow = i > 0;
+            boolean hasHigh = end < n;
+            for (int j = 0; j < count; j++) {
+                if (hasLow && hasHigh) {
+                    long low = positions[i - 1];
+                    long room = positions[end] - low;
+                    if (room <= count) {
+                        return false;
+                    }
+                    positions[i + j] = low + room * (j + 1) / (count + 1);
+                } else if (hasLow) {
+                    positions[i + j] = positions[i - 1] + (j + 1) * POSITION_GAP;
+                } else if (hasHigh) {
+                    positions[i + j] = positions[end] - (count - j) * POSITION_GAP;
+                } else {
+                    positions[i + j] = (j + 1) * POSITION_GAP;
+                }
+            }
+            i = end;
+        }
+        return true;
+    }
+
+    List<String> getDeletes() {
+        return Collections.unmodifiableList(deletes);
+    }
+
+    /**
+     * Nueva posición de las canciones ya guardadas que cambian de sitio
+     */
+    Map<String, Long> getUpdates() {
+        return Collections.unmodifiableMap(updates);
+    }
+
+    Map<String, Long> getInserts() {
+        return Collections.unmodifiableMap(inserts);
+    }
+
+    boolean isRenumbered() {
+        return renumbered;
+    }
+
+    boolean isEmpty() {
+        return deletes.isEmpty() && updates.isEmpty() && inserts.isEmpty();
+    }
+}
@@ -0,0 +1,124 @@
+package com.reproductormusica.utils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pequeño conjunto de conexiones de solo lectura a la base de datos.
+ *
+ * Las conexiones se abren bajo demanda hasta el máximo indicado; cuando todas
+ * están en uso, borrow() espera a que se devuelva alguna. Con la base de datos
+ * en modo WAL las lecturas no esperan al escritor: cada una ve el último estado
+ * confirmado al empezar. Cada conexión conserva sus sentencias preparadas entre
+ * préstamos (ver StatementCache).
+ */
+class ReadConnectionPool {
+
+    private final String url;
+    private final Properties properties;
+    private final int maxConnections;
+    private final int maxStatements;
+    private final BlockingQueue<StatementCache> idle;
+    private final List<StatementCache> all = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * @param maxStatements sentencias preparadas que conserva cada conexión
+     */
+    ReadConnectionPool(String url, Properties properties, int maxConnections, int maxStatements) {
+        this.url = url;
+        this.properties = properties;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.maxStatements = maxStatements;
+        this.idle = new ArrayBlockingQueue<>(this.maxConnections);
+    }
+
+    /**
+     * Conexión prestada; close() la devuelve al conjunto
+     */
+    final class Lease implements AutoCloseable {
+        private final StatementCache statements;
+
+        private Lease(StatementCache statements) {
+            this.statements = statements;
+        }
+
+        Connection connection() {
+            return statements.connection();
+        }
+
+        /**
+         * Sentencia preparada de esta conexión; no se cierra, solo su ResultSet
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            return statements.prepare(sql);
+        }
+
+        @Override
+        public void close() {
+            release(statements);
+        }
+    }
+
+    Lease borrow() throws SQLException {
+        return new Lease(acquire());
+    }
+
+    private StatementCache acquire() throws SQLException {
+        StatementCache statements = idle.poll();
+        if (statements != null) {
+            return statements;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("Connection pool closed");
+            }
+            if (all.size() < maxConnections) {
+                statements = new StatementCache(DriverManager.getConnection(url, properties), maxStatements);
+                all.add(statements);
+                return statements;
+            }
+        }
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", e);
+        }
+    }
+
+    private void release(StatementCache statements) {
+        synchronized (this) {
+            if (closed) {
+                closeQuietly(statements);
+                return;
+            }
+        }
+        idle.offer(statements);
+    }
+
+    synchronized void close() {
+        closed = true;
+        for (StatementCache statements : all) {
+            closeQuietly(statements);
+        }
+        all.clear();
+        idle.clear();
+    }
+
+    private static void closeQuietly(StatementCache statements) {
+        statements.close();
+        try {
+            statements.connection().close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.reproductormusica.utils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aplica en orden las migraciones de esquema pendientes.
+ *
+ * La versión del esquema se guarda en PRAGMA user_version. Cada paso tiene un
+ * número de versión y se ejecuta en su propia transacción junto con la
+ * actualización de user_version, así que un paso interrumpido no deja el esquema
+ * a medias: se repite completo en el siguiente arranque. Con el esquema al día
+ * solo se lee user_version.
+ */
+final class SchemaMigrator {
+
+    /**
+     * Un paso de migración; puede informar de su avance con progress
+     */
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection connection, Progress progress) throws SQLException;
+    }
+
+    /**
+     * Avance de un paso (por ejemplo, filas copiadas de total)
+     */
+    @FunctionalInterface
+    interface Progress {
+        void update(long done, long total);
+    }
+
+    /**
+     * Recibe el avance de cada paso: 0 de 1 al empezar, 1 de 1 al terminar y
+     * entre medias lo que informe el propio paso
+     */
+    @FunctionalInterface
+    interface Listener {
+        void progress(int version, String description, long done, long total);
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private final List<Migration> migrations = new ArrayList<>();
+    private final Listener listener;
+
+    SchemaMigrator(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Añade el paso que lleva el esquema a la versión indicada; las versiones
+     * deben añadirse en orden creciente
+     */
+    SchemaMigrator add(int version, String description, Step step) {
+        if (version <= getLatestVersion()) {
+            throw new IllegalArgumentException("Migration " + version + " added out of order");
+        }
+        migrations.add(new Migration(version, description, step));
+        return this;
+    }
+
+    int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+    }
+
+    /**
+     * Ejecuta los pasos posteriores a la versión actual de la base de datos y
+     * devuelve el número de pasos aplicados
+     */
+    int migrate(Connection connection) throws SQLException {
+        int current = getUserVersion(connection);
+        if (current > getLatestVersion()) {
+            System.err.println("La base de datos tiene un esquema más reciente (" + current +
+                               ") que el de esta versión (" + getLatestVersion() + ")");
+            return 0;
+        }
+
+        int applied = 0;
+        for (Migration migration : migrations) {
+            if (migration.version > current) {
+                apply(connection, migration);
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        Progress progress = (done, total) -> listener.progress(migration.version, migration.description, done, total);
+        progress.update(0, 1);
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            migration.step.apply(connection, progress);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA user_version = " + migration.version);
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        progress.update(1, 1);
+    }
+
+    static int getUserVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.reproductormusica.utils;
+
+import com.reproductormusica.model.Song;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Convierte filas de la tabla songs en canciones.
+ *
+ * Las posiciones de las columnas se buscan una vez por consulta y cada fila se
+ * lee por índice, en lugar de buscar cada columna por nombre en cada fila. Todas
+ * las consultas de canciones usan esta misma conversión, aunque incluyan otras
+ * columnas (como playlist_id).
+ */
+final class SongRowMapper {
+
+    private final int id;
+    private final int title;
+    private final int artist;
+    private final int album;
+    private final int genre;
+    private final int durationSeconds;
+    private final int filePath;
+    private final int albumArt;
+    private final int trackNumber;
+    private final int year;
+    private final int fileSize;
+    private final int fileMtime;
+    private final int fileInode;
+
+    /**
+     * Conversión para las columnas de rs; falla si falta alguna columna de songs
+     */
+    SongRowMapper(ResultSet rs) throws SQLException {
+        id = rs.findColumn("id");
+        title = rs.findColumn("title");
+        artist = rs.findColumn("artist");
+        album = rs.findColumn("album");
+        genre = rs.findColumn("genre");
+        durationSeconds = rs.findColumn("duration_seconds");
+        filePath = rs.findColumn("file_path");
+        albumArt = rs.findColumn("album_art");
+        trackNumber = rs.findColumn("track_number");
+        year = rs.findColumn("year");
+        fileSize = rs.findColumn("file_size");
+        fileMtime = rs.findColumn("file_mtime");
+        fileInode = rs.findColumn("file_inode");
+    }
+
+    /**
+     * Crea una canción con las columnas de la fila actual
+     */
+    Song map(ResultSet rs) throws SQLException {
+        Song song = new Song();
+        song.setId(rs.getString(id));
+        song.setTitle(rs.getString(title));
+        song.setArtist(rs.getString(artist));
+        song.setAlbum(rs.getString(album));
+        song.setGenre(rs.getString(genre));
+
+        long seconds = rs.getLong(durationSeconds);
+        if (seconds > 0) {
+            song.setDuration(Duration.ofSeconds(seconds));
+        }
+
+        song.setFilePath(rs.getString(filePath));
+        song.setAlbumArt(rs.getString(albumArt));
+        song.setTrackNumber(rs.getInt(trackNumber));
+        song.setYear(rs.getInt(year));
+        song.setFileSize(rs.getLong(fileSize));
+        song.setFileMtime(rs.getLong(fileMtime));
+        song.setFileInode(rs.getString(fileInode));
+        return song;
+    }
+}
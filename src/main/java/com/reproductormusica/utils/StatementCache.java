@@ -0,0 +1,85 @@
+package com.reproductormusica.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sentencias preparadas de una conexión, reutilizadas por texto SQL.
+ *
+ * Preparar una sentencia obliga a SQLite a analizar y planificar el SQL cada vez;
+ * aquí se prepara una sola vez por conexión y se devuelve la misma en las
+ * siguientes llamadas, con los parámetros limpios. Las sentencias devueltas no se
+ * cierran al usarlas (solo sus ResultSet): se cierran todas con close(), y las
+ * menos usadas cuando se supera el máximo. Como la conexión, la caché solo la usa
+ * un hilo a la vez.
+ */
+final class StatementCache implements AutoCloseable {
+
+    /**
+     * Mínimo de sentencias en caché. Cubre las que una misma operación usa a la vez
+     * (guardar una playlist usa hasta cinco), para que ninguna se cierre mientras
+     * otra de la misma operación se prepara.
+     */
+    static final int MIN_STATEMENTS = 8;
+
+    private final Connection connection;
+    private final int maxStatements;
+    private final Map<String, PreparedStatement> statements;
+
+    StatementCache(Connection connection, int maxStatements) {
+        this.connection = connection;
+        this.maxStatements = Math.max(MIN_STATEMENTS, maxStatements);
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.maxStatements) {
+                    return false;
+                }
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    Connection connection() {
+        return connection;
+    }
+
+    /**
+     * Sentencia preparada para sql, sin parámetros ni lotes pendientes
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+        return statement;
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    @Override
+    public void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.reproductormusica.view;
 
+import com.reproductormusica.controller.ImportJob;
 import com.reproductormusica.controller.MainController;
 import com.reproductormusica.model.PlaybackState;
 import com.reproductormusica.model.Playlist;
 import com.reproductormusica.model.RepeatMode;
 import com.reproductormusica.model.Song;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -23,6 +27,7 @@ import javafx.collections.transformation.FilteredList;
 import java.io.File;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Ventana principal de la aplicación
@@ -59,6 +64,7 @@ public class MainWindow {
     // Menu items
     private MenuItem importFiles;
     private MenuItem importFolder;
+    private MenuItem rescanFolder;
     
     public MainWindow(Stage primaryStage, MainController controller) {
         this.primaryStage = primaryStage;
@@ -112,12 +118,13 @@ public class MainWindow {
         Menu fileMenu = new Menu("Archivo");
         importFiles = new MenuItem("Importar archivos...");
         importFolder = new MenuItem("Importar carpeta...");
+        rescanFolder = new MenuItem("Reescanear carpeta...");
         MenuItem exit = new MenuItem("Salir");
         
         // Setup file menu event handlers
         setupFileMenuHandlers();
         
-        fileMenu.getItems().addAll(importFiles, importFolder, new SeparatorMenuItem(), exit);
+        fileMenu.getItems().addAll(importFiles, importFolder, rescanFolder, new SeparatorMenuItem(), exit);
         
         // Playlist menu
         Menu playlistMenu = new Menu("Lista de reproducción");
@@ -297,8 +304,8 @@ public class MainWindow {
                     nameLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
                     vbox.getChildren().add(nameLabel);
                     
-                    Label songsLabel = new Label(playlist.getSongs().size() + " canción" + 
-                        (playlist.getSongs().size() != 1 ? "es" : ""));
+                    int songCount = playlist.getSongCount();
+                    Label songsLabel = new Label(songCount + " canción" + (songCount != 1 ? "es" : ""));
                     songsLabel.setStyle("-fx-text-fill: #666666; -fx-font-size: 12px;");
                     vbox.getChildren().add(songsLabel);
                     
@@ -690,6 +697,17 @@ public class MainWindow {
             updatePlaylistStatusMessage();
         });
         
+        // Playlist songs not yet loaded with the library show up once it is complete
+        controller.libraryReadyProperty().addListener((obs, wasReady, ready) -> {
+            Playlist selectedPlaylist = playlistsListView.getSelectionModel().getSelectedItem();
+            if (selectedPlaylist != null) {
+                refreshPlaylistUI(selectedPlaylist);
+            } else {
+                playlistsListView.refresh();
+                updatePlaylistStatusMessage();
+            }
+        });
+        
         // Initial update
         updatePlaylistStatusMessage();
         
@@ -1001,6 +1019,13 @@ public class MainWindow {
     
     public void show() {
         primaryStage.show();
+        
+        // Imports interrupted by a crash or forced exit pick up where they left off
+        controller.resumeInterruptedImports().thenAccept(jobs -> Platform.runLater(() -> {
+            for (ImportJob job : jobs) {
+                showImportProgress(job);
+            }
+        }));
     }
     
     /**
@@ -1676,17 +1701,28 @@ public class MainWindow {
         saveButton.setOnAction(e -> {
             String newLyrics = editTextArea.getText().trim();
             
-            // Guardar las letras
-            saveLyricsForSong(song, newLyrics);
-            
-            // Actualizar la vista principal de letras
-            updateLyricsForCurrentSong(song);
-            
-            // Mostrar confirmación
-            showSelectionActionComplete("Letras guardadas para: " + song.getTitle());
-            
-            // Cerrar ventana
-            editWindow.close();
+            // Guardar las letras en segundo plano; la ventana espera a que terminen
+            saveButton.setDisable(true);
+            saveButton.setText("⏳ Guardando...");
+            editTextArea.setEditable(false);
+            saveLyricsForSong(song, newLyrics).whenComplete((result, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    saveButton.setDisable(false);
+                    saveButton.setText("💾 Guardar Cambios");
+                    editTextArea.setEditable(true);
+                    showSelectionActionComplete("No se pudieron guardar las letras de: " + song.getTitle());
+                    return;
+                }
+                
+                // Actualizar la vista principal de letras
+                updateLyricsForCurrentSong(song);
+                
+                // Mostrar confirmación
+                showSelectionActionComplete("Letras guardadas para: " + song.getTitle());
+                
+                // Cerrar ventana
+                editWindow.close();
+            }));
         });
         
         // Agregar todos los componentes al layout
@@ -1735,16 +1771,11 @@ public class MainWindow {
     }
     
     /**
-     * Obtiene las letras para una canción desde la base de datos
+     * Obtiene las letras para una canción desde la base de datos (que guarda en
+     * caché las últimas consultadas)
      */
     private String getLyricsForSong(Song song) {
         if (song != null && song.getId() != null) {
-            // Primero intentar obtener desde el objeto Song en memoria
-            if (song.getLyrics() != null && !song.getLyrics().trim().isEmpty()) {
-                return song.getLyrics();
-            }
-            
-            // Si no está en memoria, intentar cargar desde la base de datos
             try {
                 return controller.getDatabaseManager().getSongLyrics(song.getId());
             } catch (Exception e) {
@@ -1756,23 +1787,20 @@ public class MainWindow {
     }
     
     /**
-     * Guarda las letras para una canción específica en la base de datos
+     * Guarda las letras para una canción específica en la base de datos, en segundo plano
      */
-    private void saveLyricsForSong(Song song, String lyrics) {
-        if (song != null && song.getId() != null) {
-            try {
-                // Actualizar la canción en memoria
-                song.setLyrics(lyrics);
-                
-                // Guardar en la base de datos
-                controller.getDatabaseManager().updateSongLyrics(song.getId(), lyrics);
-                
+    private CompletableFuture<Void> saveLyricsForSong(Song song, String lyrics) {
+        if (song == null || song.getId() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return controller.saveSongLyrics(song, lyrics).whenComplete((result, error) -> {
+            if (error == null) {
                 System.out.println("Letras guardadas exitosamente para: " + song.getTitle() + " - " + song.getArtist());
-            } catch (Exception e) {
-                System.err.println("Error al guardar letras en la base de datos: " + e.getMessage());
-                e.printStackTrace();
+            } else {
+                System.err.println("Error al guardar letras en la base de datos: " + error.getMessage());
+                error.printStackTrace();
             }
-        }
+        });
     }
     
     /**
@@ -1818,27 +1846,8 @@ public class MainWindow {
             
             List<File> selectedFiles = fileChooser.showOpenMultipleDialog(primaryStage);
             if (selectedFiles != null && !selectedFiles.isEmpty()) {
-                // Show progress dialog or status
-                showImportProgress(selectedFiles.size());
-                
-                // Import files in background thread
-                Thread importThread = new Thread(() -> {
-                    try {
-                        controller.importMusicFiles(selectedFiles);
-                        // Update UI on JavaFX thread
-                        javafx.application.Platform.runLater(() -> {
-                            hideImportProgress();
-                            showImportComplete(selectedFiles.size());
-                        });
-                    } catch (Exception ex) {
-                        javafx.application.Platform.runLater(() -> {
-                            hideImportProgress();
-                            showImportError(ex.getMessage());
-                        });
-                    }
-                });
-                importThread.setDaemon(true);
-                importThread.start();
+                // Import files in background, following progress in a dialog
+                showImportProgress(controller.startImport(selectedFiles));
             }
         });
         
@@ -1856,101 +1865,127 @@ public class MainWindow {
             
             File selectedDirectory = directoryChooser.showDialog(primaryStage);
             if (selectedDirectory != null) {
-                // Scan directory for audio files
-                List<File> audioFiles = scanDirectoryForAudioFiles(selectedDirectory);
-                
-                if (!audioFiles.isEmpty()) {
-                    showImportProgress(audioFiles.size());
-                    
-                    // Import files in background thread
-                    Thread importThread = new Thread(() -> {
-                        try {
-                            controller.importMusicFiles(audioFiles);
-                            javafx.application.Platform.runLater(() -> {
-                                hideImportProgress();
-                                showImportComplete(audioFiles.size());
-                            });
-                        } catch (Exception ex) {
-                            javafx.application.Platform.runLater(() -> {
-                                hideImportProgress();
-                                showImportError(ex.getMessage());
-                            });
-                        }
-                    });
-                    importThread.setDaemon(true);
-                    importThread.start();
-                } else {
-                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                    alert.setTitle("Sin archivos de audio");
-                    alert.setHeaderText(null);
-                    alert.setContentText("No se encontraron archivos de audio en la carpeta seleccionada.");
-                    alert.showAndWait();
-                }
+                // Scan and import in background: files are imported as they are discovered
+                showImportProgress(controller.startFolderImport(selectedDirectory));
+            }
+        });
+        
+        // Rescan folder handler: only new or modified files are read again
+        rescanFolder.setOnAction(e -> {
+            DirectoryChooser directoryChooser = new DirectoryChooser();
+            directoryChooser.setTitle("Seleccionar carpeta a reescanear");
+            
+            File selectedDirectory = directoryChooser.showDialog(primaryStage);
+            if (selectedDirectory != null) {
+                showImportProgress(controller.startRescan(selectedDirectory));
             }
         });
     }
     
     /**
-     * Escanea un directorio en busca de archivos de audio
+     * Muestra una ventana con el progreso de una importación, con opciones para
+     * pausarla o cancelarla. Al terminar se cierra y muestra el resultado.
      */
-    private List<File> scanDirectoryForAudioFiles(File directory) {
-        List<File> audioFiles = new java.util.ArrayList<>();
-        scanDirectoryRecursive(directory, audioFiles);
-        return audioFiles;
+    private void showImportProgress(ImportJob job) {
+        Stage progressWindow = new Stage();
+        progressWindow.setTitle(job.getDescription());
+        progressWindow.initOwner(primaryStage);
+        
+        VBox layout = new VBox(10);
+        layout.setPadding(new Insets(20));
+        
+        Label titleLabel = new Label("📥 " + job.getDescription());
+        titleLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
+        
+        ProgressBar progressBar = new ProgressBar(ProgressBar.INDETERMINATE_PROGRESS);
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        
+        Label countsLabel = new Label();
+        Label rateLabel = new Label();
+        rateLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #666;");
+        
+        HBox buttonBox = new HBox(10);
+        buttonBox.setAlignment(Pos.CENTER_RIGHT);
+        Button pauseButton = new Button("⏸ Pausar");
+        Button cancelButton = new Button("❌ Cancelar");
+        buttonBox.getChildren().addAll(pauseButton, cancelButton);
+        
+        pauseButton.setOnAction(e -> {
+            if (job.getState() == ImportJob.State.PAUSED) {
+                job.resume();
+                pauseButton.setText("⏸ Pausar");
+            } else {
+                job.pause();
+                pauseButton.setText("▶ Reanudar");
+            }
+        });
+        cancelButton.setOnAction(e -> {
+            job.cancel();
+            cancelButton.setDisable(true);
+            pauseButton.setDisable(true);
+        });
+        
+        layout.getChildren().addAll(titleLabel, progressBar, countsLabel, rateLabel, buttonBox);
+        progressWindow.setScene(new Scene(layout, 420, 200));
+        
+        // Poll the job a few times per second; it is updated from the import threads
+        Timeline refresh = new Timeline();
+        refresh.getKeyFrames().add(new KeyFrame(javafx.util.Duration.millis(250), e -> {
+            progressBar.setProgress(job.getProgress() >= 0 ? job.getProgress() : ProgressBar.INDETERMINATE_PROGRESS);
+            countsLabel.setText(String.format("Encontrados: %d   Leídos: %d   Guardados: %d   Sin cambios: %d   Errores: %d",
+                job.getDiscovered(), job.getParsed(), job.getPersisted(), job.getSkipped(), job.getErrors()));
+            java.time.Duration eta = job.getEstimatedTimeRemaining();
+            rateLabel.setText(String.format("%.1f archivos/s", job.getFilesPerSecond()) +
+                (eta != null ? String.format("   Tiempo restante: %d:%02d", eta.toMinutes(), eta.toSecondsPart()) : ""));
+            
+            if (job.isFinished()) {
+                refresh.stop();
+                progressWindow.close();
+                showImportResult(job);
+            }
+        }));
+        refresh.setCycleCount(Animation.INDEFINITE);
+        refresh.play();
+        
+        progressWindow.setOnCloseRequest(e -> {
+            // Closing the window only hides it; the import keeps running
+            if (!job.isFinished()) {
+                System.out.println("Importación en segundo plano: " + job);
+            }
+        });
+        progressWindow.show();
     }
     
     /**
-     * Escanea recursivamente un directorio
+     * Muestra el resultado de una importación terminada
      */
-    private void scanDirectoryRecursive(File directory, List<File> audioFiles) {
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    scanDirectoryRecursive(file, audioFiles);
-                } else if (isAudioFile(file)) {
-                    audioFiles.add(file);
+    private void showImportResult(ImportJob job) {
+        switch (job.getState()) {
+            case FAILED:
+                showImportError(job.getMessage());
+                break;
+            case CANCELLED:
+                showImportMessage("Importación cancelada",
+                    "Se canceló la importación. Canciones guardadas: " + job.getPersisted() + ".");
+                break;
+            default:
+                if (job.getDiscovered() == 0) {
+                    showImportMessage("Sin archivos de audio",
+                        "No se encontraron archivos de audio en la selección.");
+                } else {
+                    showImportMessage("Importación completada",
+                        (job.getMessage() != null ? job.getMessage() : "Importación terminada") +
+                        (job.getErrors() > 0 ? " (" + job.getErrors() + " archivos con errores)" : "") + ".");
                 }
-            }
         }
     }
     
-    /**
-     * Verifica si un archivo es un archivo de audio
-     */
-    private boolean isAudioFile(File file) {
-        String name = file.getName().toLowerCase();
-        return name.endsWith(".mp3") || name.endsWith(".wav") || 
-               name.endsWith(".flac") || name.endsWith(".ogg") || 
-               name.endsWith(".m4a") || name.endsWith(".aac") || 
-               name.endsWith(".wma");
-    }
-    
-    /**
-     * Muestra progreso de importación
-     */
-    private void showImportProgress(int fileCount) {
-        // TODO: Implementar dialog de progreso
-        System.out.println("Importando " + fileCount + " archivos...");
-    }
-    
-    /**
-     * Oculta progreso de importación
-     */
-    private void hideImportProgress() {
-        // TODO: Ocultar dialog de progreso
-        System.out.println("Importación completada");
-    }
-    
-    /**
-     * Muestra mensaje de importación completada
-     */
-    private void showImportComplete(int fileCount) {
+    private void showImportMessage(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Importación completada");
+        alert.setTitle(title);
         alert.setHeaderText(null);
-        alert.setContentText("Se importaron " + fileCount + " archivos exitosamente.");
-        alert.showAndWait();
+        alert.setContentText(message);
+        alert.show();
     }
     
     /**
@@ -1961,7 +1996,7 @@ public class MainWindow {
         alert.setTitle("Error de importación");
         alert.setHeaderText(null);
         alert.setContentText("Error al importar archivos: " + errorMessage);
-        alert.showAndWait();
+        alert.show();
     }
     
     /**
@@ -2260,8 +2295,8 @@ public class MainWindow {
                         vbox.getChildren().add(descLabel);
                     }
                     
-                    Label songsLabel = new Label("(" + playlist.getSongs().size() + " canción" + 
-                        (playlist.getSongs().size() != 1 ? "es" : "") + ")");
+                    int songCount = playlist.getSongCount();
+                    Label songsLabel = new Label("(" + songCount + " canción" + (songCount != 1 ? "es" : "") + ")");
                     songsLabel.setStyle("-fx-text-fill: #999999; -fx-font-size: 0.8em;");
                     vbox.getChildren().add(songsLabel);
                     
@@ -0,0 +1,78 @@
+package com.reproductormusica.controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para FxListPublisher
+ */
+class FxListPublisherTest {
+
+    // Stand-in for the FX thread: tasks run only when the test drains the queue
+    private final Queue<Runnable> fxQueue = new ArrayDeque<>();
+
+    private synchronized void runFxTasks() {
+        Runnable task;
+        while ((task = fxQueue.poll()) != null) {
+            task.run();
+        }
+    }
+
+    @Test
+    void testItemsAddedBeforeTheFxTurnArePublishedInOneChange() throws InterruptedException {
+        ObservableList<Integer> list = FXCollections.observableArrayList();
+        AtomicInteger changeEvents = new AtomicInteger();
+        list.addListener((ListChangeListener<Integer>) change -> changeEvents.incrementAndGet());
+
+        FxListPublisher<Integer> publisher = new FxListPublisher<>(list, task -> {
+            synchronized (this) {
+                fxQueue.add(task);
+            }
+        });
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t * 1000;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    publisher.add(offset + i);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertEquals(1, fxQueue.size(), "Only one publication should be scheduled");
+        runFxTasks();
+
+        assertEquals(4000, list.size());
+        assertEquals(1, changeEvents.get());
+    }
+
+    @Test
+    void testActionsRunAfterPendingItems() {
+        ObservableList<String> list = FXCollections.observableArrayList();
+        FxListPublisher<String> publisher = new FxListPublisher<>(list, fxQueue::add);
+
+        publisher.add("a");
+        publisher.add("b");
+        publisher.runAfterPending(() -> list.remove("a"));
+        publisher.add("c");
+        runFxTasks();
+
+        assertEquals(List.of("b", "c"), list);
+    }
+}
@@ -0,0 +1,34 @@
+package com.reproductormusica.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para ImportJob
+ */
+class ImportJobTest {
+
+    @Test
+    void testProgressRateAndEstimateCountTheSameFiles() throws Exception {
+        ImportJob job = new ImportJob("test");
+        for (int i = 0; i < 10; i++) {
+            job.fileDiscovered();
+            job.fileParsed();
+        }
+        job.discoveryComplete();
+        Thread.sleep(5);
+
+        // Parsed but not saved yet: nothing is done, so there is no rate to estimate from
+        assertEquals(0.0, job.getProgress());
+        assertEquals(0.0, job.getFilesPerSecond());
+        assertNull(job.getEstimatedTimeRemaining());
+
+        job.songsPersisted(4);
+        job.fileSkipped();
+        assertEquals(5, job.getCompleted());
+        assertEquals(0.5, job.getProgress());
+        assertTrue(job.getFilesPerSecond() > 0);
+        assertTrue(job.getEstimatedTimeRemaining().toNanos() > 0);
+    }
+}
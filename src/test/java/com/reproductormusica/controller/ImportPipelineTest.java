@@ -0,0 +1,139 @@
+package com.reproductormusica.controller;
+
+import com.reproductormusica.model.Song;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para ImportPipeline
+ */
+class ImportPipelineTest {
+
+    @Test
+    void testAllFilesDeliveredOnSingleWriterThread() throws InterruptedException {
+        List<Song> delivered = new ArrayList<>();
+        List<String> writerThreads = new ArrayList<>();
+
+        ImportPipeline pipeline = new ImportPipeline(new ImportJob("test"), 4, 8, 5,
+            file -> new Song(file.getName(), file.getName(), "Artist", file.getPath()),
+            songs -> {
+                assertTrue(songs.size() <= 5, "Batch larger than batchSize");
+                delivered.addAll(songs);
+                writerThreads.add(Thread.currentThread().getName());
+            });
+
+        for (int i = 0; i < 100; i++) {
+            pipeline.submit(new File("song" + i + ".mp3"));
+        }
+        pipeline.finish();
+
+        assertEquals(100, delivered.size());
+        assertTrue(writerThreads.stream().allMatch("import-writer"::equals));
+        assertEquals(0, pipeline.getErrorCount());
+    }
+
+    @Test
+    void testInFlightFilesAreBounded() throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        ImportPipeline pipeline = new ImportPipeline(new ImportJob("test"), 4, 3, 2,
+            file -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return new Song(file.getName(), file.getName(), "Artist", file.getPath());
+            },
+            songs -> {
+                sleep(2);
+                inFlight.addAndGet(-songs.size());
+            });
+
+        for (int i = 0; i < 50; i++) {
+            pipeline.submit(new File("song" + i + ".mp3"));
+        }
+        pipeline.finish();
+
+        assertTrue(maxInFlight.get() <= 3, "In-flight files exceeded capacity: " + maxInFlight.get());
+    }
+
+    @Test
+    void testExtractorFailuresAreCounted() throws InterruptedException {
+        List<Song> delivered = new ArrayList<>();
+        ImportPipeline pipeline = new ImportPipeline(new ImportJob("test"), 2, 4, 4,
+            file -> {
+                if (file.getName().startsWith("bad")) {
+                    throw new IllegalStateException("corrupt");
+                }
+                return new Song(file.getName(), file.getName(), "Artist", file.getPath());
+            },
+            delivered::addAll);
+
+        pipeline.submit(new File("good.mp3"));
+        pipeline.submit(new File("bad.mp3"));
+        pipeline.finish();
+
+        assertEquals(1, delivered.size());
+        assertEquals(1, pipeline.getErrorCount());
+    }
+
+    @Test
+    void testJobCountsProgressAndStopsOnCancel() throws InterruptedException {
+        ImportJob job = new ImportJob("test");
+        List<Song> delivered = new ArrayList<>();
+        ImportPipeline pipeline = new ImportPipeline(job, 2, 4, 4,
+            file -> new Song(file.getName(), file.getName(), "Artist", file.getPath()),
+            delivered::addAll);
+
+        for (int i = 0; i < 10; i++) {
+            pipeline.submit(new File("song" + i + ".mp3"));
+        }
+        job.cancel();
+        assertThrows(CancellationException.class, () -> pipeline.submit(new File("late.mp3")));
+        pipeline.finish();
+
+        assertEquals(10, job.getDiscovered());
+        assertEquals(job.getParsed(), job.getPersisted());
+        assertEquals(delivered.size(), job.getPersisted());
+        assertEquals(ImportJob.State.CANCELLED, job.getState());
+    }
+
+    @Test
+    void testPausedJobBlocksSubmissionUntilResumed() throws Exception {
+        ImportJob job = new ImportJob("test");
+        ImportPipeline pipeline = new ImportPipeline(job, 1, 4, 4,
+            file -> new Song(file.getName(), file.getName(), "Artist", file.getPath()),
+            songs -> { });
+
+        job.pause();
+        Thread submitter = new Thread(() -> {
+            try {
+                pipeline.submit(new File("song.mp3"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        submitter.start();
+        submitter.join(200);
+        assertTrue(submitter.isAlive(), "Submission should wait while paused");
+        assertEquals(0, job.getDiscovered());
+
+        job.resume();
+        submitter.join(5000);
+        pipeline.finish();
+        assertEquals(1, job.getPersisted());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.reproductormusica.controller;
+
+import com.reproductormusica.model.Song;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para IoScheduler
+ */
+class IoSchedulerTest {
+
+    // Stand-in for two physical devices: folders starting with "nas" share one
+    private static final Function<Path, Object> DEVICE_KEY =
+        dir -> dir.getFileName().toString().startsWith("nas") ? "nas" : "local";
+
+    /**
+     * Extractor that simulates a slow disk and records concurrent reads per key
+     */
+    private static class ThrottledReader implements Function<File, Song> {
+        final Function<File, String> keyOf;
+        final Map<String, AtomicInteger> current = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> max = new ConcurrentHashMap<>();
+        final AtomicInteger overall = new AtomicInteger();
+        final AtomicInteger maxOverall = new AtomicInteger();
+
+        ThrottledReader(Function<File, String> keyOf) {
+            this.keyOf = keyOf;
+        }
+
+        @Override
+        public Song apply(File file) {
+            String key = keyOf.apply(file);
+            int now = current.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            max.computeIfAbsent(key, k -> new AtomicInteger()).accumulateAndGet(now, Math::max);
+            maxOverall.accumulateAndGet(overall.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                overall.decrementAndGet();
+                current.get(key).decrementAndGet();
+            }
+            return new Song(file.getPath(), file.getName(), "Artist", file.getPath());
+        }
+    }
+
+    private static void runImport(IoScheduler scheduler, Function<File, Song> extractor, String... folders)
+            throws InterruptedException {
+        ImportPipeline pipeline = new ImportPipeline(new ImportJob("test"), 8, 64, 16,
+                                                     scheduler, extractor, List::size);
+        for (int i = 0; i < 12; i++) {
+            for (String folder : folders) {
+                pipeline.submit(new File("/music/" + folder + "/song" + i + ".mp3"));
+            }
+        }
+        pipeline.finish();
+    }
+
+    @Test
+    void testReadsAreCappedPerDeviceNotGlobally() throws InterruptedException {
+        ThrottledReader reader = new ThrottledReader(
+            file -> file.getParentFile().getName().startsWith("nas") ? "nas" : "local");
+
+        runImport(new IoScheduler(2, false, DEVICE_KEY), reader, "nas1", "nas2", "local");
+
+        assertTrue(reader.max.get("nas").get() <= 2, "NAS reads: " + reader.max.get("nas"));
+        assertTrue(reader.max.get("local").get() <= 2, "Local reads: " + reader.max.get("local"));
+        assertTrue(reader.maxOverall.get() > 2, "Devices should be read in parallel");
+    }
+
+    @Test
+    void testSequentialDirectoriesReadOneFileAtATime() throws InterruptedException {
+        ThrottledReader reader = new ThrottledReader(file -> file.getParent());
+
+        runImport(new IoScheduler(0, true, DEVICE_KEY), reader, "a", "b", "c");
+
+        for (Map.Entry<String, AtomicInteger> entry : reader.max.entrySet()) {
+            assertEquals(1, entry.getValue().get(), "Concurrent reads in " + entry.getKey());
+        }
+        assertTrue(reader.maxOverall.get() > 1, "Different directories should still overlap");
+    }
+}
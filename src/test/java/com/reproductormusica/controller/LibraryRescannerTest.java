@@ -0,0 +1,115 @@
+package com.reproductormusica.controller;
+
+import com.reproductormusica.model.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para LibraryRescanner
+ */
+class LibraryRescannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<File> addedFiles = new ArrayList<>();
+    private final List<Song> changedSongs = new ArrayList<>();
+
+    private final LibraryRescanner.Listener listener = new LibraryRescanner.Listener() {
+        @Override
+        public void fileAdded(File file) {
+            addedFiles.add(file);
+        }
+
+        @Override
+        public void fileChanged(File file, Song existing) {
+            changedSongs.add(existing);
+        }
+    };
+
+    @Test
+    void testClassifiesUnchangedChangedAddedAndRemovedFiles() throws Exception {
+        Song unchanged = knownSong(write("unchanged.mp3", "aaaa"));
+        Song changed = knownSong(write("changed.mp3", "bbbb"));
+        Song removed = knownSong(write("removed.mp3", "cccc"));
+
+        Files.writeString(tempDir.resolve("changed.mp3"), "bbbb plus new tags");
+        Files.delete(tempDir.resolve("removed.mp3"));
+        Files.setLastModifiedTime(write("new.mp3", "dddd"), FileTime.fromMillis(removed.getFileMtime() + 5000));
+
+        LibraryRescanner.Result result = new LibraryRescanner(List.of(unchanged, changed, removed))
+            .rescan(tempDir, listener);
+
+        assertEquals(1, result.getUnchanged());
+        assertEquals(1, result.getChanged());
+        assertEquals(1, result.getAdded());
+        assertEquals(List.of(changed), changedSongs);
+        assertEquals(List.of(tempDir.resolve("new.mp3").toFile()), addedFiles);
+        assertEquals(List.of(removed), result.getRemoved());
+    }
+
+    @Test
+    void testRenamedFileIsDetectedAsMove() throws Exception {
+        Path original = write("old-name.mp3", "eeee");
+        Song song = knownSong(original);
+        if (song.getFileInode() == null) {
+            return; // File keys are not available on this platform
+        }
+
+        Path renamed = Files.move(original, tempDir.resolve("new-name.mp3"));
+
+        LibraryRescanner.Result result = new LibraryRescanner(List.of(song)).rescan(tempDir, listener);
+
+        assertEquals(renamed.toAbsolutePath(), result.getMoved().get(song));
+        assertTrue(result.getRemoved().isEmpty());
+        assertTrue(addedFiles.isEmpty());
+    }
+
+    @Test
+    void testSongsOutsideRootAreNotRemoved() throws Exception {
+        Path sub = Files.createDirectories(tempDir.resolve("sub"));
+        Song outside = knownSong(write("outside.mp3", "ffff"));
+
+        LibraryRescanner.Result result = new LibraryRescanner(List.of(outside)).rescan(sub, listener);
+
+        assertTrue(result.getRemoved().isEmpty());
+    }
+
+    @Test
+    void testSongsInSubfoldersAreKeptWhenSubfoldersAreNotScanned() throws Exception {
+        Files.createDirectories(tempDir.resolve("sub"));
+        Song top = knownSong(write("top.mp3", "gggg"));
+        Song nested = knownSong(write("sub/nested.mp3", "hhhh"));
+        write("sub/new.mp3", "iiii");
+
+        LibraryRescanner.Result result = new LibraryRescanner(List.of(top, nested), false).rescan(tempDir, listener);
+
+        assertEquals(1, result.getUnchanged());
+        assertTrue(result.getRemoved().isEmpty());
+        assertTrue(addedFiles.isEmpty());
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(tempDir.resolve(name), content);
+    }
+
+    private Song knownSong(Path file) throws Exception {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        Song song = new Song(file.getFileName().toString(), file.getFileName().toString(), "Artist",
+                             file.toAbsolutePath().toString());
+        song.setFileSize(attrs.size());
+        song.setFileMtime(attrs.lastModifiedTime().toMillis());
+        song.setFileInode(attrs.fileKey() != null ? attrs.fileKey().toString() : null);
+        return song;
+    }
+}
@@ -1,7 +1,12 @@
 package com.reproductormusica.controller;
 
 import com.reproductormusica.model.Song;
+import com.reproductormusica.utils.DatabaseManager;
+import com.reproductormusica.utils.ImportJournal;
 import com.reproductormusica.utils.MetadataExtractor;
+import com.reproductormusica.utils.TestAudioFiles;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,7 +14,21 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,6 +48,320 @@ class MainControllerTest {
         // controller = new MainController();
     }
     
+    @AfterEach
+    void tearDown() {
+        if (controller != null) {
+            controller.shutdown();
+        }
+        System.clearProperty("database.name");
+        System.clearProperty("database.backup.enabled");
+        System.clearProperty("library.watch.folders");
+        System.clearProperty("library.scan.subdirectories");
+    }
+    
+    /**
+     * Controlador con una biblioteca en memoria, sin copias de seguridad ni vigilancia
+     */
+    private MainController startController() {
+        return startController(DatabaseManager.IN_MEMORY);
+    }
+    
+    private MainController startController(String databaseName) {
+        System.setProperty("database.name", databaseName);
+        System.setProperty("database.backup.enabled", "false");
+        System.setProperty("library.watch.folders", "false");
+        controller = new MainController();
+        return controller;
+    }
+    
+    // Imports run one at a time, so an empty one finishes after everything queued before it
+    private void awaitImports() throws InterruptedException {
+        assertTrue(controller.startImport(Collections.emptyList()).awaitCompletion(30, TimeUnit.SECONDS));
+    }
+    
+    private Path writeSongs(Path directory, int count) throws IOException {
+        Files.createDirectories(directory);
+        for (int i = 0; i < count; i++) {
+            TestAudioFiles.writeMp3(directory.resolve("song" + i + ".mp3"), "Song " + i, "Artist", "Album",
+                                    String.valueOf(i + 1), "2020", 3, false);
+        }
+        return directory;
+    }
+    
+    @Test
+    void testFolderChangesWaitForTheRunningImport() throws Exception {
+        Path music = writeSongs(tempDir.resolve("music"), 20);
+        Set<Path> files = new LinkedHashSet<>();
+        try (var stream = Files.list(music)) {
+            stream.forEach(files::add);
+        }
+        Path other = writeSongs(tempDir.resolve("other"), 1).resolve("song0.mp3");
+        startController();
+        
+        // An import held in pause keeps the import thread busy
+        ImportJob running = controller.startImport(Collections.singletonList(other.toFile()));
+        running.pause();
+        // The watcher reports the files of the folder meanwhile
+        controller.createFolderListener().onChanges(files, Collections.emptySet());
+        
+        Set<String> changedPaths = new HashSet<>();
+        files.forEach(file -> changedPaths.add(file.toString()));
+        assertTrue(controller.getDatabaseManager().getAllSongs().stream()
+            .noneMatch(song -> changedPaths.contains(song.getFilePath())));
+        
+        running.resume();
+        assertTrue(running.awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        
+        assertEquals(21, controller.getLibrary().size());
+        assertEquals(21, new HashSet<>(controller.getLibrary()).size());
+        assertEquals(21, controller.getDatabaseManager().getAllSongs().size());
+    }
+    
+    @Test
+    void testNewFileAtAMovedSongsOldPathGetsItsOwnId() throws Exception {
+        Path music = writeSongs(tempDir.resolve("music"), 1);
+        Path a = music.resolve("a.mp3");
+        Path b = music.resolve("b.mp3");
+        Files.move(music.resolve("song0.mp3"), a);
+        startController();
+        
+        assertTrue(controller.startFolderImport(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        String movedId = controller.getLibrary().get(0).getId();
+        
+        Files.move(a, b);
+        assertTrue(controller.startRescan(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        TestAudioFiles.writeMp3(a, "New", "Artist", "Album", "1", "2021", 3, false);
+        assertTrue(controller.startRescan(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        
+        assertEquals(2, controller.getLibrary().size());
+        Song moved = controller.getSongById(movedId);
+        assertNotNull(moved);
+        assertEquals(b.toFile().getAbsolutePath(), moved.getFilePath());
+        
+        List<Song> stored = controller.getDatabaseManager().getAllSongs();
+        assertEquals(2, stored.size());
+        assertNotEquals(stored.get(0).getId(), stored.get(1).getId());
+        assertTrue(stored.stream().anyMatch(song -> song.getId().equals(movedId)
+                                                    && song.getFilePath().equals(moved.getFilePath())));
+        assertTrue(stored.stream().anyMatch(song -> "New".equals(song.getTitle())));
+    }
+    
+    @Test
+    void testRemovedSongsAreDeletedInTheBackground() throws Exception {
+        Path music = writeSongs(tempDir.resolve("music"), 3);
+        startController();
+        assertTrue(controller.startFolderImport(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        
+        List<Song> removed = List.of(controller.getLibrary().get(0), controller.getLibrary().get(1));
+        controller.removeSongsFromLibrary(removed);
+        assertEquals(1, controller.getLibrary().size());
+        
+        awaitImports();
+        List<Song> stored = controller.getDatabaseManager().getAllSongs();
+        assertEquals(1, stored.size());
+        assertFalse(removed.contains(stored.get(0)));
+    }
+    
+    @Test
+    void testSongsThatFailToSaveAreNotKeptInTheLibrary() throws Exception {
+        Path music = writeSongs(tempDir.resolve("music"), 5);
+        Path database = tempDir.resolve("library.db");
+        startController(database.toString());
+        
+        String url = "jdbc:sqlite:" + database;
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TRIGGER reject_songs BEFORE INSERT ON songs "
+                         + "BEGIN SELECT RAISE(ABORT, 'rejected'); END");
+        }
+        ImportJob failed = controller.startFolderImport(music.toFile());
+        assertTrue(failed.awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        
+        assertEquals(0, failed.getPersisted());
+        assertEquals(5, failed.getErrors());
+        assertTrue(controller.getLibrary().isEmpty());
+        assertTrue(controller.getDatabaseManager().getAllSongs().isEmpty());
+        
+        // Nothing was kept as already imported, so the next import stores them
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TRIGGER reject_songs");
+        }
+        ImportJob retried = controller.startFolderImport(music.toFile());
+        assertTrue(retried.awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        
+        assertEquals(5, retried.getPersisted());
+        assertEquals(5, controller.getLibrary().size());
+        assertEquals(5, controller.getDatabaseManager().getAllSongs().size());
+        
+        // A second import of the same files skips them instead of counting them as saved
+        ImportJob again = controller.startFolderImport(music.toFile());
+        assertTrue(again.awaitCompletion(30, TimeUnit.SECONDS));
+        assertEquals(0, again.getPersisted());
+        assertEquals(5, again.getSkipped());
+        assertEquals(1.0, again.getProgress());
+    }
+    
+    @Test
+    void testChangedSongsThatFailToSaveKeepTheStoredVersion() throws Exception {
+        Path music = writeSongs(tempDir.resolve("music"), 1);
+        Path database = tempDir.resolve("library.db");
+        startController(database.toString());
+        assertTrue(controller.startFolderImport(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        Song stored = controller.getLibrary().get(0);
+        
+        String url = "jdbc:sqlite:" + database;
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TRIGGER reject_updates BEFORE UPDATE ON songs "
+                         + "BEGIN SELECT RAISE(ABORT, 'rejected'); END");
+        }
+        Path file = music.resolve("song0.mp3");
+        TestAudioFiles.writeMp3(file, "Changed", "Artist", "Album", "1", "2020", 4, false);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+            Files.getLastModifiedTime(file).toMillis() + 60_000));
+        ImportJob rescan = controller.startRescan(music.toFile());
+        assertTrue(rescan.awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        
+        assertEquals(0, rescan.getPersisted());
+        assertEquals(1, rescan.getErrors());
+        assertEquals(1, controller.getLibrary().size());
+        assertSame(stored, controller.getLibrary().get(0));
+        assertSame(stored, controller.getSongById(stored.getId()));
+        assertEquals("Song 0", controller.getDatabaseManager().getAllSongs().get(0).getTitle());
+    }
+        
+    @Test
+    void testFolderChangesInSubfoldersAreIgnoredWithoutSubdirectories() throws Exception {
+        Path music = writeSongs(tempDir.resolve("music"), 1);
+        Path album = writeSongs(music.resolve("album"), 1);
+        System.setProperty("library.scan.subdirectories", "false");
+        startController();
+        assertTrue(controller.startFolderImport(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        assertEquals(1, controller.getLibrary().size());
+        
+        Path added = music.resolve("added.mp3");
+        TestAudioFiles.writeMp3(added, "Added", "Artist", "Album", "2", "2020", 3, false);
+        controller.createFolderListener().onChanges(Set.of(album.resolve("song0.mp3"), added),
+                                                    Collections.emptySet());
+        awaitImports();
+        
+        assertEquals(2, controller.getLibrary().size());
+        assertTrue(controller.getLibrary().stream().anyMatch(song -> song.getFilePath().equals(added.toString())));
+        assertEquals(2, controller.getDatabaseManager().getAllSongs().size());
+    }
+    
+    @Test
+    void testInterruptedImportsAreFoundOnTheImportThread() throws Exception {
+        Path music = writeSongs(tempDir.resolve("music"), 1);
+        Path other = writeSongs(tempDir.resolve("other"), 1).resolve("song0.mp3");
+        startController(tempDir.resolve("library.db").toString());
+        
+        Path journalDirectory = Path.of(controller.getDatabaseManager().getDatabasePath() + "-imports");
+        ImportJournal.create(journalDirectory, ImportJournal.Kind.FILES,
+                             List.of(music.resolve("song0.mp3").toString(), music.resolve("gone.mp3").toString()))
+            .close();
+        
+        // While the import thread is busy the journals are not even read
+        ImportJob running = controller.startImport(Collections.singletonList(other.toFile()));
+        running.pause();
+        CompletableFuture<List<ImportJob>> resumed = controller.resumeInterruptedImports();
+        Thread.sleep(200);
+        assertFalse(resumed.isDone());
+        
+        running.resume();
+        List<ImportJob> jobs = resumed.get(30, TimeUnit.SECONDS);
+        assertEquals(1, jobs.size());
+        assertTrue(jobs.get(0).awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        
+        assertEquals(1, jobs.get(0).getPersisted());
+        assertEquals(2, controller.getLibrary().size());
+        assertTrue(ImportJournal.findPending(journalDirectory).isEmpty());
+    }
+    
+    @Test
+    void testLyricsAreSavedOnTheImportThread() throws Exception {
+        Path music = writeSongs(tempDir.resolve("music"), 1);
+        Path other = writeSongs(tempDir.resolve("other"), 1).resolve("song0.mp3");
+        startController();
+        assertTrue(controller.startFolderImport(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        Song song = controller.getLibrary().get(0);
+        
+        // Queued behind the running import like any other library write
+        ImportJob running = controller.startImport(Collections.singletonList(other.toFile()));
+        running.pause();
+        CompletableFuture<Void> saved = controller.saveSongLyrics(song, "la la la");
+        Thread.sleep(200);
+        assertFalse(saved.isDone());
+        
+        running.resume();
+        saved.get(30, TimeUnit.SECONDS);
+        assertEquals("la la la", controller.getDatabaseManager().getSongLyrics(song.getId()));
+    }
+    
+    @Test
+    void testChangedSongsAreReplacedInOnePassPerBatch() throws Exception {
+        Path music = writeSongs(tempDir.resolve("music"), 5);
+        startController();
+        assertTrue(controller.startFolderImport(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        List<String> ids = controller.getLibrary().stream().map(Song::getId).collect(Collectors.toList());
+        
+        for (int i = 0; i < 3; i++) {
+            Path file = music.resolve("song" + i + ".mp3");
+            TestAudioFiles.writeMp3(file, "Changed " + i, "Artist", "Album", "1", "2020", 4, false);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(
+                Files.getLastModifiedTime(file).toMillis() + 60_000));
+        }
+        // Each saved batch changes the whole library at once instead of one song at a time
+        List<Integer> replacedSizes = new CopyOnWriteArrayList<>();
+        controller.getLibrary().addListener((ListChangeListener<Song>) change -> {
+            while (change.next()) {
+                replacedSizes.add(change.getAddedSize());
+            }
+        });
+        assertTrue(controller.startRescan(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        
+        assertFalse(replacedSizes.isEmpty());
+        assertTrue(replacedSizes.stream().allMatch(size -> size == 5), replacedSizes.toString());
+        assertEquals(ids, controller.getLibrary().stream().map(Song::getId).collect(Collectors.toList()));
+        assertEquals(3, controller.getLibrary().stream()
+            .filter(song -> song.getTitle().startsWith("Changed ")).count());
+        for (Song song : controller.getLibrary()) {
+            assertSame(song, controller.getSongById(song.getId()));
+        }
+    }
+    
+    @Test
+    void testRescannedSongsKeepTheirLyrics() throws Exception {
+        Path music = writeSongs(tempDir.resolve("music"), 1);
+        startController();
+        assertTrue(controller.startFolderImport(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        Song song = controller.getLibrary().get(0);
+        controller.saveSongLyrics(song, "la la la").get(30, TimeUnit.SECONDS);
+        
+        Path file = music.resolve("song0.mp3");
+        TestAudioFiles.writeMp3(file, "Changed", "Artist", "Album", "1", "2020", 4, false);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+            Files.getLastModifiedTime(file).toMillis() + 60_000));
+        assertTrue(controller.startRescan(music.toFile()).awaitCompletion(30, TimeUnit.SECONDS));
+        awaitImports();
+        
+        assertEquals("Changed", controller.getSongById(song.getId()).getTitle());
+        assertEquals("la la la", controller.getDatabaseManager().getSongLyrics(song.getId()));
+    }
+    
     @Test
     void testCreatePlaylist() {
         // Test placeholder - implementar con mocks
@@ -0,0 +1,94 @@
+package com.reproductormusica.controller;
+
+import com.reproductormusica.model.Playlist;
+import com.reproductormusica.model.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para PlaylistWriter
+ */
+class PlaylistWriterTest {
+
+    private final List<Playlist> saved = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+
+    private static Playlist playlistWithSongs(int count) {
+        Playlist playlist = new Playlist("Test");
+        for (int i = 0; i < count; i++) {
+            playlist.addSong(new Song(String.valueOf(i), "Song " + i, "Artist", "/music/" + i + ".mp3"));
+        }
+        return playlist;
+    }
+
+    @Test
+    void testRepeatedUpdatesAreCoalescedIntoOneWrite() {
+        PlaylistWriter writer = new PlaylistWriter(saved::add, deleted::add, 60_000);
+        Playlist playlist = playlistWithSongs(100);
+
+        for (int i = 0; i < 99; i++) {
+            playlist.moveSong(i, i + 1);
+            writer.save(playlist);
+        }
+        assertTrue(saved.isEmpty(), "Nothing should be written before the interval");
+
+        writer.close();
+
+        assertEquals(1, saved.size());
+        assertEquals(playlist.getSongs(), saved.get(0).getSongs());
+    }
+
+    @Test
+    void testPendingChangesAreFlushedPeriodically() throws InterruptedException {
+        CountDownLatch written = new CountDownLatch(1);
+        PlaylistWriter writer = new PlaylistWriter(p -> { saved.add(p); written.countDown(); }, deleted::add, 20);
+
+        writer.save(playlistWithSongs(3));
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        writer.close();
+        assertEquals(1, saved.size());
+    }
+
+    @Test
+    void testSnapshotIsNotAffectedByLaterEdits() {
+        PlaylistWriter writer = new PlaylistWriter(saved::add, deleted::add, 60_000);
+        Playlist playlist = playlistWithSongs(3);
+
+        writer.save(playlist);
+        playlist.clearSongs(); // Edited but not saved again
+
+        writer.close();
+        assertEquals(3, saved.get(0).size());
+    }
+
+    @Test
+    void testDeleteDiscardsPendingSave() {
+        PlaylistWriter writer = new PlaylistWriter(saved::add, deleted::add, 60_000);
+        Playlist playlist = playlistWithSongs(3);
+
+        writer.save(playlist);
+        writer.delete(playlist.getId());
+        writer.close();
+
+        assertTrue(saved.isEmpty());
+        assertEquals(List.of(playlist.getId()), deleted);
+    }
+
+    @Test
+    void testChangesAfterCloseAreWrittenImmediately() {
+        PlaylistWriter writer = new PlaylistWriter(saved::add, deleted::add, 60_000);
+        writer.close();
+
+        writer.save(playlistWithSongs(1));
+
+        assertEquals(1, saved.size());
+    }
+}
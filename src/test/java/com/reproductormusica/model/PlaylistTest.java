@@ -3,6 +3,12 @@ package com.reproductormusica.model;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -58,6 +64,18 @@ class PlaylistTest {
         assertTrue(playlist.getSongs().contains(song2));
     }
     
+    @Test
+    void testRemoveSongs() {
+        Song song3 = new Song("3", "Song 3", "Artist 3", "/path/3.mp3");
+        playlist.addSong(song1);
+        playlist.addSong(song2);
+        playlist.addSong(song3);
+        
+        playlist.removeSongs(Set.of(song1, song3));
+        
+        assertEquals(List.of(song2), playlist.getSongs());
+    }
+    
     @Test
     void testRemoveSongByIndex() {
         playlist.addSong(song1);
@@ -89,4 +107,69 @@ class PlaylistTest {
         expected = "Test Playlist (1 songs)";
         assertEquals(expected, playlist.toString());
     }
+    
+    @Test
+    void testSongIdsAreResolvedOnFirstAccessToSharedInstances() {
+        Map<String, Song> library = Map.of("1", song1, "2", song2);
+        List<String> lookups = new ArrayList<>();
+        long modifiedDate = playlist.getModifiedDate();
+        
+        playlist.setSongIds(List.of("2", "missing", "1"), id -> {
+            lookups.add(id);
+            return library.get(id);
+        });
+        assertFalse(playlist.isLoaded());
+        assertTrue(lookups.isEmpty());
+        assertEquals(modifiedDate, playlist.getModifiedDate());
+        
+        List<Song> songs = playlist.getSongs();
+        assertTrue(playlist.isLoaded());
+        assertEquals(2, songs.size());
+        assertSame(song2, songs.get(0));
+        assertSame(song1, songs.get(1));
+        
+        playlist.getSongs();
+        assertEquals(3, lookups.size());
+    }
+    
+    @Test
+    void testSongIdsNotFoundWhileLoadingStayPending() {
+        Song song3 = new Song("3", "Song 3", "Artist 3", "/path/3.mp3");
+        Song song4 = new Song("4", "Song 4", "Artist 4", "/path/4.mp3");
+        Map<String, Song> library = new HashMap<>(Map.of("1", song1, "3", song3));
+        boolean[] loaded = {false};
+        
+        playlist.setSongIds(List.of("1", "2", "3"), library::get, () -> loaded[0]);
+        assertEquals(List.of(song1, song3), playlist.getSongs());
+        assertFalse(playlist.isLoaded());
+        
+        // Changes made meanwhile apply to the ids, found or not
+        playlist.moveSong(1, 0);
+        playlist.removeSong(song1);
+        playlist.addSong(song4);
+        assertEquals(List.of("3", "2", "4"), playlist.getSongIds());
+        assertEquals(List.of(song3), playlist.getSongs());
+        
+        library.put("2", song2);
+        loaded[0] = true;
+        assertEquals(List.of(song3, song2), playlist.getSongs());
+        assertTrue(playlist.isLoaded());
+    }
+    
+    @Test
+    void testSongCountDoesNotResolveTheSongs() {
+        List<String> lookups = new ArrayList<>();
+        Map<String, Song> library = Map.of("1", song1, "2", song2);
+        playlist.setSongIds(List.of("1", "2"), id -> {
+            lookups.add(id);
+            return library.get(id);
+        });
+        
+        assertEquals(2, playlist.getSongCount());
+        assertTrue(lookups.isEmpty());
+        assertFalse(playlist.isLoaded());
+        
+        playlist.addSong(song2);
+        assertEquals(2, playlist.getSongCount());
+    }
 }
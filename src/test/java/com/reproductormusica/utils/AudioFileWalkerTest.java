@@ -0,0 +1,82 @@
+package com.reproductormusica.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests unitarios para AudioFileWalker
+ */
+class AudioFileWalkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFindsAudioFilesInSubdirectories() throws Exception {
+        Files.createDirectories(tempDir.resolve("artist/album"));
+        Files.createFile(tempDir.resolve("top.mp3"));
+        Files.createFile(tempDir.resolve("artist/album/01.FLAC"));
+        Files.createFile(tempDir.resolve("artist/album/cover.jpg"));
+
+        List<Path> found = new ArrayList<>();
+        long count = new AudioFileWalker(true).walk(tempDir, (file, attrs) -> found.add(file));
+
+        assertEquals(2, count);
+        assertTrue(found.contains(tempDir.resolve("top.mp3")));
+        assertTrue(found.contains(tempDir.resolve("artist/album/01.FLAC")));
+    }
+
+    @Test
+    void testFilesOfEachDirectoryAreDeliveredTogetherAndSorted() throws Exception {
+        Files.createDirectories(tempDir.resolve("b"));
+        Files.createFile(tempDir.resolve("2.mp3"));
+        Files.createFile(tempDir.resolve("b/y.mp3"));
+        Files.createFile(tempDir.resolve("1.mp3"));
+        Files.createFile(tempDir.resolve("b/x.mp3"));
+        Files.createFile(tempDir.resolve("3.mp3"));
+
+        List<Path> found = new ArrayList<>();
+        new AudioFileWalker(true).walk(tempDir, (file, attrs) -> found.add(file));
+
+        assertEquals(List.of(tempDir.resolve("b/x.mp3"), tempDir.resolve("b/y.mp3"),
+                             tempDir.resolve("1.mp3"), tempDir.resolve("2.mp3"), tempDir.resolve("3.mp3")),
+                     found);
+    }
+
+    @Test
+    void testNonRecursiveWalkStaysAtTopLevel() throws Exception {
+        Files.createDirectories(tempDir.resolve("sub"));
+        Files.createFile(tempDir.resolve("top.ogg"));
+        Files.createFile(tempDir.resolve("sub/nested.ogg"));
+
+        List<Path> found = new ArrayList<>();
+        new AudioFileWalker(false).walk(tempDir, (file, attrs) -> found.add(file));
+
+        assertEquals(List.of(tempDir.resolve("top.ogg")), found);
+    }
+
+    @Test
+    void testSymlinkLoopIsSkipped() throws Exception {
+        Path album = Files.createDirectories(tempDir.resolve("album"));
+        Files.createFile(album.resolve("track.mp3"));
+        try {
+            Files.createSymbolicLink(album.resolve("loop"), tempDir);
+        } catch (IOException | UnsupportedOperationException e) {
+            assumeTrue(false, "Symbolic links not supported");
+        }
+
+        List<Path> found = new ArrayList<>();
+        long count = new AudioFileWalker(true).walk(tempDir, (file, attrs) -> found.add(file));
+
+        assertEquals(1, count);
+    }
+}
@@ -0,0 +1,149 @@
+package com.reproductormusica.utils;
+
+import com.reproductormusica.model.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para DatabaseBackup
+ */
+class DatabaseBackupTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DatabaseManager openDatabase(int songCount) {
+        DatabaseManager db = new DatabaseManager(tempDir.resolve("library.db").toString());
+        db.initialize();
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < songCount; i++) {
+            songs.add(new Song("s" + i, "Title " + i, "Artist", "/music/" + i + ".mp3"));
+        }
+        db.saveSongs(songs, 500);
+        return db;
+    }
+
+    private DatabaseBackup backup(int keep) {
+        return new DatabaseBackup(tempDir.resolve("library.db"), tempDir.resolve("backups"),
+                                  60_000, keep, 4, 0);
+    }
+
+    @Test
+    void testBackupIsAConsistentCopyWhileTheDatabaseIsOpen() throws Exception {
+        DatabaseManager db = openDatabase(2000);
+        try {
+            Path copy = backup(3).backupNow();
+
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + copy);
+                 Statement stmt = connection.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA integrity_check")) {
+                    assertEquals("ok", rs.getString(1));
+                }
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM songs")) {
+                    assertEquals(2000, rs.getInt(1));
+                }
+            }
+            // The live database keeps accepting writes
+            db.saveSong(new Song("extra", "Extra", "Artist", "/music/extra.mp3"));
+            assertEquals(2001, db.getAllSongs().size());
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    void testWritesDuringTheBackupDoNotReachTheCopy() throws Exception {
+        DatabaseManager db = openDatabase(2000);
+        Path backups = tempDir.resolve("backups");
+        Thread writer = new Thread(() -> {
+            try {
+                // Writes start once the copy is being written
+                while (!hasPartialBackup(backups)) {
+                    Thread.sleep(1);
+                }
+                for (int i = 0; i < 50; i++) {
+                    db.saveSong(new Song("w" + i, "Written " + i, "Artist", "/music/w" + i + ".mp3"));
+                    Thread.sleep(2);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            writer.start();
+            Path copy = new DatabaseBackup(tempDir.resolve("library.db"), backups, 60_000, 3, 1, 5).backupNow();
+            writer.join();
+
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + copy);
+                 Statement stmt = connection.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA integrity_check")) {
+                    assertEquals("ok", rs.getString(1));
+                }
+                // The copy is the database as it was when the backup started
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM songs")) {
+                    assertEquals(2000, rs.getInt(1));
+                }
+            }
+            assertEquals(2050, db.getAllSongs().size());
+        } finally {
+            writer.join();
+            db.close();
+        }
+    }
+
+    private static boolean hasPartialBackup(Path backups) throws IOException {
+        if (!Files.isDirectory(backups)) {
+            return false;
+        }
+        try (Stream<Path> files = Files.list(backups)) {
+            return files.anyMatch(file -> file.getFileName().toString().endsWith(".part"));
+        }
+    }
+
+    @Test
+    void testOnlyTheNewestBackupsAreKept() throws Exception {
+        DatabaseManager db = openDatabase(10);
+        try {
+            DatabaseBackup backup = backup(2);
+            List<Path> created = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                created.add(backup.backupNow());
+                Thread.sleep(5);
+            }
+
+            assertEquals(created.subList(2, 4), backup.listBackups());
+            assertFalse(Files.exists(created.get(0)));
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    void testIntervalMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseBackup(
+            tempDir.resolve("library.db"), tempDir.resolve("backups"), 0, 3, 1, 0));
+    }
+
+    @Test
+    void testNonPositiveConfiguredIntervalFallsBackToTheDefault() {
+        System.setProperty("database.backup.interval", "0");
+        try {
+            assertNotNull(DatabaseBackup.fromConfig(tempDir.resolve("library.db").toString()));
+        } finally {
+            System.clearProperty("database.backup.interval");
+        }
+    }
+}
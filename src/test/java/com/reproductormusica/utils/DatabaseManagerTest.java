@@ -0,0 +1,440 @@
+package com.reproductormusica.utils;
+
+import com.reproductormusica.model.Playlist;
+import com.reproductormusica.model.Song;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para DatabaseManager
+ */
+class DatabaseManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DatabaseManager databaseManager;
+
+    @AfterEach
+    void tearDown() {
+        if (databaseManager != null) {
+            databaseManager.close();
+        }
+    }
+
+    private DatabaseManager open() {
+        databaseManager = new DatabaseManager(tempDir.resolve("test.db").toString());
+        databaseManager.initialize();
+        return databaseManager;
+    }
+
+    private static Song song(String id, String path) {
+        Song song = new Song(id, "Title " + id, "Artist", path);
+        song.setAlbum("Album");
+        return song;
+    }
+
+    @Test
+    void testSavingSameSongTwiceKeepsOneRow() {
+        DatabaseManager db = open();
+        db.saveSong(song("1", "/music/a.mp3"));
+        db.saveSong(song("1", "/music/a.mp3"));
+
+        assertEquals(1, db.getAllSongs().size());
+    }
+
+    @Test
+    void testResavingSongKeepsLyrics() {
+        DatabaseManager db = open();
+        db.saveSong(song("1", "/music/a.mp3"));
+        db.updateSongLyrics("1", "la la la");
+
+        db.saveSong(song("1", "/music/a.mp3"));
+
+        assertEquals("la la la", db.getSongLyrics("1"));
+    }
+
+    @Test
+    void testSaveSongsCommitsEveryBatch() {
+        DatabaseManager db = open();
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            songs.add(song(String.valueOf(i), "/music/" + i + ".mp3"));
+        }
+
+        assertEquals(25, db.saveSongs(songs, 10));
+        assertEquals(25, db.getAllSongs().size());
+    }
+
+    @Test
+    void testSaveSongsSkipsOnlyTheFailingBatch() {
+        DatabaseManager db = open();
+        List<Song> songs = List.of(
+            song("1", "/music/1.mp3"),
+            song("2", "/music/2.mp3"),
+            song("3", "/music/1.mp3"), // Duplicate path violates the unique index
+            song("4", "/music/4.mp3"));
+
+        assertEquals(2, db.saveSongs(songs, 2));
+        assertEquals(2, db.getAllSongs().size());
+    }
+
+    @Test
+    void testSongIdIsStableForSamePath() {
+        File file = tempDir.resolve("song.mp3").toFile();
+        assertEquals(MetadataExtractor.songIdForFile(file), MetadataExtractor.songIdForFile(file));
+        assertNotEquals(MetadataExtractor.songIdForFile(file),
+                        MetadataExtractor.songIdForFile(tempDir.resolve("other.mp3").toFile()));
+    }
+
+    @Test
+    void testReadsAreNotBlockedByAnOpenWriteTransaction() throws Exception {
+        DatabaseManager db = open();
+        db.saveSong(song("1", "/music/a.mp3"));
+
+        String url = "jdbc:sqlite:" + tempDir.resolve("test.db");
+        try (Connection writer = DriverManager.getConnection(url);
+             Statement stmt = writer.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+                assertEquals("wal", rs.getString(1));
+            }
+            stmt.execute("BEGIN EXCLUSIVE");
+            stmt.execute("INSERT INTO songs (id, title, file_path) VALUES ('2', 'B', '/music/b.mp3')");
+
+            // Readers see the last committed state instead of waiting for the writer
+            assertEquals(1, db.getAllSongs().size());
+            stmt.execute("COMMIT");
+        }
+        assertEquals(2, db.getAllSongs().size());
+    }
+
+    @Test
+    void testLegacyDuplicatesAreMergedOnStartup() throws Exception {
+        String url = "jdbc:sqlite:" + tempDir.resolve("test.db");
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE songs (id TEXT PRIMARY KEY, title TEXT NOT NULL, artist TEXT, album TEXT, " +
+                         "genre TEXT, duration_seconds INTEGER, file_path TEXT NOT NULL, album_art TEXT, " +
+                         "track_number INTEGER, year INTEGER, created_date INTEGER, modified_date INTEGER)");
+            stmt.execute("CREATE TABLE playlists (id TEXT PRIMARY KEY, name TEXT NOT NULL, description TEXT, " +
+                         "created_date INTEGER, modified_date INTEGER)");
+            stmt.execute("CREATE TABLE playlist_songs (playlist_id TEXT, song_id TEXT, position INTEGER, " +
+                         "PRIMARY KEY (playlist_id, song_id))");
+            stmt.execute("INSERT INTO songs (id, title, file_path) VALUES ('first', 'A', '/music/a.mp3')");
+            stmt.execute("INSERT INTO songs (id, title, file_path) VALUES ('second', 'A', '/music/a.mp3')");
+            stmt.execute("INSERT INTO playlists (id, name) VALUES ('p', 'Playlist')");
+            stmt.execute("INSERT INTO playlist_songs VALUES ('p', 'second', 0)");
+        }
+
+        DatabaseManager db = open();
+
+        List<Song> songs = db.getAllSongs();
+        assertEquals(1, songs.size());
+        assertEquals("first", songs.get(0).getId());
+
+        Playlist playlist = db.getAllPlaylists().get(0);
+        assertEquals(1, playlist.size());
+        assertEquals("first", playlist.getSongs().get(0).getId());
+    }
+
+    @Test
+    void testPlaylistsLoadWithTheirSongsInOrder() {
+        DatabaseManager db = open();
+        db.saveSongs(List.of(song("a", "/music/a.mp3"), song("b", "/music/b.mp3"), song("c", "/music/c.mp3")), 10);
+        
+        Playlist second = new Playlist("B");
+        second.addSong(song("c", "/music/c.mp3"));
+        second.addSong(song("a", "/music/a.mp3"));
+        second.setModifiedDate(1234L);
+        db.savePlaylist(second);
+        
+        Playlist first = new Playlist("A");
+        first.addSong(song("b", "/music/b.mp3"));
+        db.savePlaylist(first);
+        db.savePlaylist(new Playlist("C"));
+        
+        List<Playlist> playlists = db.getAllPlaylists();
+        assertEquals(3, playlists.size());
+        assertEquals("A", playlists.get(0).getName());
+        assertEquals(List.of("b"), ids(playlists.get(0)));
+        assertEquals("B", playlists.get(1).getName());
+        assertEquals(List.of("c", "a"), ids(playlists.get(1)));
+        assertEquals(1234L, playlists.get(1).getModifiedDate());
+        assertTrue(playlists.get(2).isEmpty());
+    }
+
+    @Test
+    void testMovingASongRewritesOnlyItsPosition() throws Exception {
+        DatabaseManager db = open();
+        Playlist playlist = new Playlist("P");
+        for (int i = 0; i < 5; i++) {
+            Song song = song("s" + i, "/music/" + i + ".mp3");
+            db.saveSong(song);
+            playlist.addSong(song);
+        }
+        db.savePlaylist(playlist);
+        List<Long> before = positions(playlist.getId());
+
+        playlist.moveSong(4, 1);
+        db.savePlaylist(playlist);
+
+        List<Long> after = positions(playlist.getId());
+        int changed = 0;
+        for (int i = 0; i < before.size(); i++) {
+            if (!before.get(i).equals(after.get(i))) {
+                changed++;
+            }
+        }
+        assertEquals(1, changed);
+        assertEquals(List.of("s0", "s4", "s1", "s2", "s3"), ids(db.getAllPlaylists().get(0)));
+    }
+
+    // Positions of the playlist rows in song id order
+    private List<Long> positions(String playlistId) throws Exception {
+        List<Long> positions = new ArrayList<>();
+        String url = "jdbc:sqlite:" + tempDir.resolve("test.db");
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT position FROM playlist_songs WHERE playlist_id = '" +
+                                              playlistId + "' ORDER BY song_id")) {
+            while (rs.next()) {
+                positions.add(rs.getLong(1));
+            }
+        }
+        return positions;
+    }
+
+    @Test
+    void testNoStatementScansATableOrSortsInATempBTree() throws Exception {
+        open().close();
+        List<String> problems = new ArrayList<>();
+        int checked = 0;
+        String url = "jdbc:sqlite:" + tempDir.resolve("test.db");
+        try (Connection connection = DriverManager.getConnection(url)) {
+            // The temporary table only exists on the connection that creates it
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(DatabaseManager.DELETED_SONGS_TABLE_SQL);
+            }
+            for (Field field : DatabaseManager.class.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) || !field.getName().endsWith("_SQL")) {
+                    continue;
+                }
+                field.setAccessible(true);
+                String sql = (String) field.get(null);
+                try (PreparedStatement pstmt = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+                     ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        String detail = rs.getString("detail");
+                        if (detail.matches("SCAN \\w+") || detail.contains("TEMP B-TREE")) {
+                            problems.add(field.getName() + ": " + detail);
+                        }
+                    }
+                }
+                checked++;
+            }
+        }
+        assertTrue(checked >= 10, "Only " + checked + " statements found");
+        assertEquals(List.of(), problems);
+    }
+
+    @Test
+    void testPagesFollowTheLibraryOrderIncludingMissingArtists() {
+        DatabaseManager db = open();
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            Song song = song("s" + i, "/music/" + i + ".mp3");
+            song.setArtist(i % 4 == 0 ? null : "Artist " + (i % 3));
+            song.setAlbum(i % 5 == 0 ? null : "Album " + (i % 2));
+            song.setTrackNumber(i % 7);
+            songs.add(song);
+        }
+        db.saveSongs(songs, 100);
+
+        List<String> expected = new ArrayList<>();
+        db.getAllSongs().forEach(song -> expected.add(song.getId()));
+
+        List<String> paged = new ArrayList<>();
+        Song last = null;
+        List<Song> page;
+        do {
+            page = db.getSongsPage(last, 5);
+            assertTrue(page.size() <= 5);
+            page.forEach(song -> paged.add(song.getId()));
+            last = page.isEmpty() ? last : page.get(page.size() - 1);
+        } while (page.size() == 5);
+
+        List<String> streamed = new ArrayList<>();
+        db.forEachSong(4, song -> streamed.add(song.getId()));
+
+        assertEquals(23, expected.size());
+        assertEquals(expected, paged);
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    void testLegacyLyricsAreMovedToTheirOwnCompressedTable() throws Exception {
+        String lyrics = "Chorus line\n".repeat(40);
+        String url = "jdbc:sqlite:" + tempDir.resolve("test.db");
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE songs (id TEXT PRIMARY KEY, title TEXT NOT NULL, artist TEXT, album TEXT, " +
+                         "genre TEXT, duration_seconds INTEGER, file_path TEXT NOT NULL, album_art TEXT, " +
+                         "track_number INTEGER, year INTEGER, lyrics TEXT, created_date INTEGER, modified_date INTEGER)");
+            stmt.execute("INSERT INTO songs (id, title, file_path, lyrics) VALUES ('1', 'A', '/music/a.mp3', '" + lyrics + "')");
+            stmt.execute("INSERT INTO songs (id, title, file_path) VALUES ('2', 'B', '/music/b.mp3')");
+        }
+
+        DatabaseManager db = open();
+
+        assertEquals(lyrics, db.getSongLyrics("1"));
+        assertNull(db.getSongLyrics("2"));
+        assertEquals(2, db.getAllSongs().size());
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT length(lyrics) FROM song_lyrics WHERE song_id = '1'")) {
+            assertTrue(rs.next());
+            assertTrue(rs.getInt(1) < lyrics.length() / 4);
+        }
+    }
+
+    @Test
+    void testUpdatedLyricsReplaceTheCachedOnes() {
+        DatabaseManager db = open();
+        db.saveSong(song("1", "/music/a.mp3"));
+        assertNull(db.getSongLyrics("1"));
+
+        db.updateSongLyrics("1", "first");
+        assertEquals("first", db.getSongLyrics("1"));
+        db.updateSongLyrics("1", "");
+        assertNull(db.getSongLyrics("1"));
+    }
+
+    @Test
+    void testLyricsOfARolledBackBatchDoNotReachTheCache() throws Exception {
+        DatabaseManager db = open();
+        db.saveSong(song("1", "/music/a.mp3"));
+        db.updateSongLyrics("1", "committed");
+        assertEquals("committed", db.getSongLyrics("1"));
+
+        // The lyrics of the second song fail after the first song's are written
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + tempDir.resolve("test.db"));
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TRIGGER fail_lyrics BEFORE INSERT ON song_lyrics WHEN NEW.song_id = '2' "
+                         + "BEGIN SELECT RAISE(ABORT, 'lyrics rejected'); END");
+        }
+        Song first = song("1", "/music/a.mp3");
+        first.setLyrics("rolled back");
+        Song second = song("2", "/music/b.mp3");
+        second.setLyrics("rejected");
+
+        assertEquals(0, db.saveSongs(List.of(first, second), 10));
+        assertEquals("committed", db.getSongLyrics("1"));
+    }
+
+    @Test
+    void testSchemaIsAtTheLatestVersionAfterStartup() throws Exception {
+        open().close();
+        databaseManager = null;
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + tempDir.resolve("test.db"));
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            assertEquals(DatabaseManager.getSchemaVersion(), rs.getInt(1));
+        }
+
+        // A second startup finds nothing to migrate and keeps working
+        DatabaseManager db = open();
+        db.saveSong(song("1", "/music/a.mp3"));
+        assertEquals(1, db.getAllSongs().size());
+    }
+
+    @Test
+    void testDeleteSongsRemovesPlaylistEntriesAndLyricsInOneGo() throws Exception {
+        DatabaseManager db = open();
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            songs.add(song(String.valueOf(i), "/music/" + i + ".mp3"));
+        }
+        db.saveSongs(songs, 100);
+        db.updateSongLyrics("2", "la la la");
+        Playlist playlist = new Playlist("Mix");
+        songs.forEach(playlist::addSong);
+        db.savePlaylist(playlist);
+
+        assertEquals(3, db.deleteSongs(List.of("1", "2", "3", "missing")));
+
+        assertEquals(7, db.getAllSongs().size());
+        assertNull(db.getSongLyrics("2"));
+        assertEquals(List.of("0", "4", "5", "6", "7", "8", "9"), ids(db.getAllPlaylists().get(0)));
+        assertEquals(7, positions(playlist.getId()).size());
+
+        // The id table is emptied, so a later delete only removes its own songs
+        db.deleteSong("0");
+        assertEquals(6, db.getAllSongs().size());
+    }
+
+    @Test
+    void testInMemoryDatabasesAreSharedByTheirConnectionsOnly() {
+        DatabaseManager first = DatabaseManager.inMemory();
+        DatabaseManager second = DatabaseManager.inMemory();
+        first.initialize();
+        second.initialize();
+        try {
+            first.saveSong(song("1", "/music/a.mp3"));
+            first.updateSongLyrics("1", "la la la");
+
+            // Reads go through the pooled connections, not the writer
+            assertEquals(1, first.getAllSongs().size());
+            assertEquals(1, first.getSongsPage(null, 10).size());
+            assertTrue(second.getAllSongs().isEmpty());
+            assertTrue(first.isInMemory());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    void testNewDatabaseUsesTheConfiguredPageSize() throws Exception {
+        System.setProperty("database.page.size", "8192");
+        try {
+            open().close();
+        } finally {
+            System.clearProperty("database.page.size");
+        }
+        databaseManager = null;
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + tempDir.resolve("test.db"));
+             Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA page_size")) {
+                assertEquals(8192, rs.getInt(1));
+            }
+            try (ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+                assertEquals("wal", rs.getString(1));
+            }
+        }
+    }
+
+    private static List<String> ids(Playlist playlist) {
+        List<String> ids = new ArrayList<>();
+        for (Song song : playlist.getSongs()) {
+            ids.add(song.getId());
+        }
+        return ids;
+    }
+}
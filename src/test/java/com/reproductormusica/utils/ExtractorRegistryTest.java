@@ -0,0 +1,71 @@
+package com.reproductormusica.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para ExtractorRegistry
+ */
+class ExtractorRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ExtractorRegistry registry(AudioFormat... formats) {
+        ExtractorRegistry registry = new ExtractorRegistry(EnumSet.of(formats[0], formats));
+        for (AudioFormat format : AudioFormat.values()) {
+            registry.register(format, (file, detected, song) -> { });
+        }
+        return registry;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void testFormatConfirmedBySignature() {
+        ExtractorRegistry registry = registry(AudioFormat.MP3, AudioFormat.FLAC, AudioFormat.WAV);
+
+        assertEquals(AudioFormat.MP3, registry.detect("a.mp3", ascii("ID3\u0003\u0000"), 5));
+        assertEquals(AudioFormat.MP3, registry.detect("a.mp3", new byte[] {(byte) 0xFF, (byte) 0xFB, (byte) 0x90}, 3));
+        assertEquals(AudioFormat.FLAC, registry.detect("a.flac", ascii("fLaC\u0000"), 5));
+        assertEquals(AudioFormat.WAV, registry.detect("a.wav", ascii("RIFF\u0000\u0000\u0000\u0000WAVE"), 12));
+    }
+
+    @Test
+    void testMislabeledFileUsesSniffedFormat() {
+        ExtractorRegistry registry = registry(AudioFormat.MP3, AudioFormat.OGG);
+
+        assertEquals(AudioFormat.OGG, registry.detect("a.mp3", ascii("OggS\u0000"), 5));
+    }
+
+    @Test
+    void testForeignFilesAreRejected() throws Exception {
+        ExtractorRegistry registry = registry(AudioFormat.MP3, AudioFormat.FLAC);
+        Path text = Files.write(tempDir.resolve("notes.mp3"), ascii("just some text"));
+        Path empty = Files.write(tempDir.resolve("empty.flac"), new byte[0]);
+
+        assertNull(registry.detect(text.toFile()));
+        assertNull(registry.detect(empty.toFile()));
+        assertNull(MetadataExtractor.extractMetadata(text.toFile()));
+    }
+
+    @Test
+    void testOnlyConfiguredFormatsAreSupported() {
+        ExtractorRegistry registry = registry(AudioFormat.MP3);
+
+        assertTrue(registry.supportsFileName("Song.MP3"));
+        assertFalse(registry.supportsFileName("song.wma"));
+        assertNull(registry.detect("song.wma", new byte[] {0x30, 0x26, (byte) 0xB2, 0x75,
+                                                           (byte) 0x8E, 0x66, (byte) 0xCF, 0x11}, 8));
+        assertEquals(EnumSet.of(AudioFormat.MP3), registry.getEnabledFormats());
+    }
+}
@@ -0,0 +1,101 @@
+package com.reproductormusica.utils;
+
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para FastTagReader
+ */
+class FastTagReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMp3WithXingHeaderMatchesJaudiotagger() throws Exception {
+        Path file = TestAudioFiles.writeMp3(tempDir.resolve("song.mp3"),
+                                            "Title", "Artist", "Album", "3/12", "1999", 10, true);
+
+        FastTagReader.Result result = FastTagReader.read(file.toFile());
+
+        assertNotNull(result);
+        assertTrue(result.hasTag());
+        assertEquals(10, result.getDurationSeconds());
+
+        AudioFile audioFile = AudioFileIO.read(file.toFile());
+        Tag tag = audioFile.getTag();
+        for (FieldKey key : new FieldKey[] {FieldKey.TITLE, FieldKey.ARTIST, FieldKey.ALBUM,
+                                            FieldKey.GENRE, FieldKey.TRACK, FieldKey.YEAR}) {
+            assertEquals(tag.getFirst(key), result.getFirst(key), key.name());
+        }
+        assertEquals(audioFile.getAudioHeader().getTrackLength(), result.getDurationSeconds());
+    }
+
+    @Test
+    void testCbrMp3DurationFromBitrate() throws Exception {
+        Path file = TestAudioFiles.writeMp3(tempDir.resolve("cbr.mp3"),
+                                            "Title", "Artist", "Album", "1", "2001", 7, false);
+
+        FastTagReader.Result result = FastTagReader.read(file.toFile());
+
+        assertNotNull(result);
+        assertEquals(7, result.getDurationSeconds());
+        assertEquals("Rock", result.getFirst(FieldKey.GENRE));
+    }
+
+    @Test
+    void testFlacReadsStreamInfoAndVorbisComments() throws Exception {
+        Path file = TestAudioFiles.writeFlac(tempDir.resolve("song.flac"),
+                                             "Título", "Artista", "Álbum", "5", "2010", 42);
+
+        FastTagReader.Result result = FastTagReader.read(file.toFile());
+
+        assertNotNull(result);
+        assertEquals(42, result.getDurationSeconds());
+        assertEquals("Título", result.getFirst(FieldKey.TITLE));
+        assertEquals("Artista", result.getFirst(FieldKey.ARTIST));
+        assertEquals("Álbum", result.getFirst(FieldKey.ALBUM));
+        assertEquals("5", result.getFirst(FieldKey.TRACK));
+        assertEquals("2010", result.getFirst(FieldKey.YEAR));
+    }
+
+    @Test
+    void testUnrecognisedFilesFallBack() throws Exception {
+        Path notMp3 = Files.write(tempDir.resolve("noise.mp3"), new byte[4096]);
+        Path wav = Files.write(tempDir.resolve("song.wav"), new byte[64]);
+
+        assertNull(FastTagReader.read(notMp3.toFile()));
+        assertNull(FastTagReader.read(wav.toFile()));
+    }
+
+    @Test
+    void testCorruptHeaderSizesFallBackWithoutReadingThem() throws Exception {
+        // ID3v2 header claiming the largest syncsafe size (256 MB) in a 4 KB file
+        byte[] id3 = new byte[4096];
+        id3[0] = 'I';
+        id3[1] = 'D';
+        id3[2] = '3';
+        id3[3] = 3;
+        id3[6] = id3[7] = id3[8] = id3[9] = 0x7F;
+        Path mp3 = Files.write(tempDir.resolve("corrupt.mp3"), id3);
+
+        // FLAC truncated in the middle of its VORBIS_COMMENT block
+        Path complete = TestAudioFiles.writeFlac(tempDir.resolve("complete.flac"),
+                                                 "Title", "Artist", "Album", "1", "2010", 5);
+        byte[] flac = Files.readAllBytes(complete);
+        Path truncated = Files.write(tempDir.resolve("truncated.flac"), Arrays.copyOf(flac, flac.length - 10));
+
+        assertNull(FastTagReader.read(mp3.toFile()));
+        assertNull(FastTagReader.read(truncated.toFile()));
+    }
+}
@@ -0,0 +1,113 @@
+package com.reproductormusica.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para FolderWatcher
+ */
+class FolderWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<Set<Path>> updatedBatches = new CopyOnWriteArrayList<>();
+    private final List<Set<Path>> deletedBatches = new CopyOnWriteArrayList<>();
+    private FolderWatcher watcher;
+
+    @AfterEach
+    void tearDown() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    @Test
+    void testBurstOfEventsIsDeliveredAsOneNetBatch() throws Exception {
+        Path existing = Files.writeString(tempDir.resolve("existing.mp3"), "old");
+        watcher = new FolderWatcher(new RecordingListener(), 400);
+        watcher.watch(tempDir);
+
+        Path added = tempDir.resolve("added.mp3");
+        for (int i = 0; i < 20; i++) {
+            Files.writeString(added, "chunk " + i);
+        }
+        Path temporary = Files.writeString(tempDir.resolve("temporary.mp3"), "tmp");
+        Files.delete(temporary);
+        Files.delete(existing);
+
+        waitForBatches(1);
+        Thread.sleep(600);
+
+        assertEquals(1, updatedBatches.size(), "Events should be coalesced into one batch");
+        assertEquals(Set.of(added), updatedBatches.get(0));
+        assertEquals(Set.of(existing), deletedBatches.get(0));
+    }
+
+    @Test
+    void testFilesInNewSubdirectoryAreReported() throws Exception {
+        watcher = new FolderWatcher(new RecordingListener(), 400);
+        watcher.watch(tempDir);
+
+        Path album = Files.createDirectories(tempDir.resolve("album"));
+        Path track = Files.writeString(album.resolve("01.mp3"), "data");
+
+        waitForBatches(1);
+        Thread.sleep(600);
+
+        Set<Path> allUpdated = new HashSet<>();
+        updatedBatches.forEach(allUpdated::addAll);
+        assertTrue(allUpdated.contains(track));
+    }
+
+    @Test
+    void testSubdirectoriesAreIgnoredWhenNotRecursive() throws Exception {
+        Path existingAlbum = Files.createDirectories(tempDir.resolve("existing"));
+        watcher = new FolderWatcher(new RecordingListener(), 400);
+        watcher.watch(tempDir, false);
+
+        Path album = Files.createDirectories(tempDir.resolve("album"));
+        Files.writeString(album.resolve("01.mp3"), "data");
+        Files.writeString(existingAlbum.resolve("02.mp3"), "data");
+        Path track = Files.writeString(tempDir.resolve("03.mp3"), "data");
+
+        waitForBatches(1);
+        Thread.sleep(600);
+
+        Set<Path> allUpdated = new HashSet<>();
+        updatedBatches.forEach(allUpdated::addAll);
+        assertEquals(Set.of(track), allUpdated);
+    }
+
+    private void waitForBatches(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (updatedBatches.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(updatedBatches.size() >= count, "No changes were delivered");
+    }
+
+    private class RecordingListener implements FolderWatcher.Listener {
+        @Override
+        public void onChanges(Set<Path> updated, Set<Path> deleted) {
+            updatedBatches.add(updated);
+            deletedBatches.add(deleted);
+        }
+
+        @Override
+        public void onOverflow(Path root) {
+            fail("Unexpected overflow for " + root);
+        }
+    }
+}
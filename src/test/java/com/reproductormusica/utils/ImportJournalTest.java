@@ -0,0 +1,68 @@
+package com.reproductormusica.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para ImportJournal
+ */
+class ImportJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testOnlyCommittedBatchesCountAfterCrash() throws Exception {
+        ImportJournal journal = ImportJournal.create(tempDir, ImportJournal.Kind.FILES,
+                                                     List.of("/music/a.mp3", "/music/b.mp3", "/music/c.mp3"));
+        journal.recordBatch(List.of("/music/a.mp3", "/music/b.mp3"));
+        journal.close();
+        // A batch cut off before its commit mark, as if the process died mid-write
+        Files.write(journal.getFile(), "F /music/c.mp3\nC 2".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+
+        List<ImportJournal.Pending> pending = ImportJournal.findPending(tempDir);
+
+        assertEquals(1, pending.size());
+        assertEquals(ImportJournal.Kind.FILES, pending.get(0).getKind());
+        assertEquals(3, pending.get(0).getSources().size());
+        assertEquals(Set.of("/music/a.mp3", "/music/b.mp3"), pending.get(0).getCompleted());
+        assertEquals(1, pending.get(0).getCommittedBatches());
+    }
+
+    @Test
+    void testResumedJournalAppendsAfterLastCommittedBatch() throws Exception {
+        ImportJournal journal = ImportJournal.create(tempDir, ImportJournal.Kind.FOLDER, List.of("/music"));
+        journal.recordBatch(List.of("/music/a.mp3"));
+        journal.close();
+        Files.write(journal.getFile(), "F /music/torn".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        ImportJournal resumed = ImportJournal.resume(ImportJournal.findPending(tempDir).get(0));
+        resumed.recordBatch(List.of("/music/b.mp3"));
+        resumed.close();
+
+        ImportJournal.Pending pending = ImportJournal.findPending(tempDir).get(0);
+        assertEquals(Set.of("/music/a.mp3", "/music/b.mp3"), pending.getCompleted());
+        assertEquals(2, pending.getCommittedBatches());
+    }
+
+    @Test
+    void testFinishedJournalIsDeleted() throws Exception {
+        ImportJournal journal = ImportJournal.create(tempDir, ImportJournal.Kind.FILES, List.of("/music/a\nb.mp3"));
+        assertEquals(List.of("/music/a\nb.mp3"), ImportJournal.findPending(tempDir).get(0).getSources());
+
+        journal.finish();
+
+        assertFalse(Files.exists(journal.getFile()));
+        assertTrue(ImportJournal.findPending(tempDir).isEmpty());
+    }
+}
@@ -0,0 +1,109 @@
+package com.reproductormusica.utils;
+
+import com.reproductormusica.model.Song;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mide las filas por segundo al cargar la biblioteca entera: preparando la
+ * consulta en cada carga y leyendo las columnas por nombre (como se hacía antes)
+ * frente a DatabaseManager.getAllSongs(), con la sentencia en caché y las
+ * columnas leídas por índice.
+ *
+ * Uso: LibraryLoadBenchmark [canciones]. Genera la base de datos en un
+ * directorio temporal. No forma parte de la suite de tests: se ejecuta a mano,
+ * por ejemplo con
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.reproductormusica.utils.LibraryLoadBenchmark
+ */
+public class LibraryLoadBenchmark {
+
+    private static final int ROUNDS = 10;
+    private static final String ALL_SONGS_SQL =
+        "SELECT * FROM songs ORDER BY sort_artist, sort_album, sort_track, id";
+
+    public static void main(String[] args) throws Exception {
+        int songCount = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+
+        Path dir = Files.createTempDirectory("library-benchmark");
+        String dbPath = dir.resolve("bench.db").toString();
+        DatabaseManager db = new DatabaseManager(dbPath);
+        db.initialize();
+        try {
+            populate(db, songCount);
+            System.out.println("Canciones: " + songCount);
+
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath)) {
+                // Warm up both paths before measuring
+                loadByName(connection);
+                db.getAllSongs();
+
+                for (int round = 1; round <= ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    int slowCount = loadByName(connection).size();
+                    double slow = (System.nanoTime() - start) / 1_000_000_000.0;
+
+                    start = System.nanoTime();
+                    int fastCount = db.getAllSongs().size();
+                    double fast = (System.nanoTime() - start) / 1_000_000_000.0;
+
+                    System.out.printf("Ronda %d: por nombre %.0f filas/s (%d), por índice %.0f filas/s (%d) (x%.2f)%n",
+                                      round, slowCount / slow, slowCount, fastCount / fast, fastCount, slow / fast);
+                }
+            }
+        } finally {
+            db.close();
+        }
+    }
+
+    private static void populate(DatabaseManager db, int songCount) {
+        List<Song> library = new ArrayList<>();
+        for (int i = 0; i < songCount; i++) {
+            Song song = new Song("song-" + i, "Title " + i, "Artist " + (i % 500), "/music/" + i + ".mp3");
+            song.setAlbum("Album " + (i % 2000));
+            song.setGenre("Genre " + (i % 20));
+            song.setTrackNumber(i % 15 + 1);
+            song.setYear(1970 + i % 50);
+            song.setDuration(Duration.ofSeconds(120 + i % 300));
+            library.add(song);
+        }
+        db.saveSongs(library, 500);
+    }
+
+    // The previous loading: a statement prepared per call and every column looked up by name on every row
+    private static List<Song> loadByName(Connection connection) throws Exception {
+        List<Song> songs = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(ALL_SONGS_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                Song song = new Song();
+                song.setId(rs.getString("id"));
+                song.setTitle(rs.getString("title"));
+                song.setArtist(rs.getString("artist"));
+                song.setAlbum(rs.getString("album"));
+                song.setGenre(rs.getString("genre"));
+                long durationSeconds = rs.getLong("duration_seconds");
+                if (durationSeconds > 0) {
+                    song.setDuration(Duration.ofSeconds(durationSeconds));
+                }
+                song.setFilePath(rs.getString("file_path"));
+                song.setAlbumArt(rs.getString("album_art"));
+                song.setTrackNumber(rs.getInt("track_number"));
+                song.setYear(rs.getInt("year"));
+                song.setFileSize(rs.getLong("file_size"));
+                song.setFileMtime(rs.getLong("file_mtime"));
+                song.setFileInode(rs.getString("file_inode"));
+                songs.add(song);
+            }
+        }
+        return songs;
+    }
+}
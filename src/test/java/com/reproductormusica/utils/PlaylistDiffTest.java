@@ -0,0 +1,72 @@
+package com.reproductormusica.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para PlaylistDiff
+ */
+class PlaylistDiffTest {
+
+    private static final long GAP = PlaylistDiff.POSITION_GAP;
+
+    private static Map<String, Long> stored(String... songIds) {
+        Map<String, Long> stored = new HashMap<>();
+        for (int i = 0; i < songIds.length; i++) {
+            stored.put(songIds[i], (i + 1) * GAP);
+        }
+        return stored;
+    }
+
+    @Test
+    void testNewPlaylistInsertsEverySongWithGaps() {
+        PlaylistDiff diff = PlaylistDiff.compute(new HashMap<>(), List.of("a", "b", "c"));
+
+        assertEquals(Map.of("a", GAP, "b", 2 * GAP, "c", 3 * GAP), diff.getInserts());
+        assertTrue(diff.getUpdates().isEmpty());
+        assertTrue(diff.getDeletes().isEmpty());
+    }
+
+    @Test
+    void testMovingOneSongUpdatesOnlyItsRow() {
+        PlaylistDiff diff = PlaylistDiff.compute(stored("a", "b", "c", "d", "e"), List.of("a", "e", "b", "c", "d"));
+
+        assertEquals(1, diff.getUpdates().size());
+        long position = diff.getUpdates().get("e");
+        assertTrue(position > GAP && position < 2 * GAP);
+        assertTrue(diff.getInserts().isEmpty());
+        assertTrue(diff.getDeletes().isEmpty());
+        assertFalse(diff.isRenumbered());
+    }
+
+    @Test
+    void testInsertAndRemoveTouchOnlyThoseRows() {
+        PlaylistDiff diff = PlaylistDiff.compute(stored("a", "b", "c"), List.of("x", "a", "c", "y"));
+
+        assertEquals(List.of("b"), diff.getDeletes());
+        assertTrue(diff.getUpdates().isEmpty());
+        assertEquals(2, diff.getInserts().size());
+        assertTrue(diff.getInserts().get("x") < GAP);
+        assertTrue(diff.getInserts().get("y") > 3 * GAP);
+    }
+
+    @Test
+    void testUnchangedPlaylistProducesNoChanges() {
+        assertTrue(PlaylistDiff.compute(stored("a", "b"), List.of("a", "b")).isEmpty());
+    }
+
+    @Test
+    void testContiguousPositionsAreRenumberedWhenThereIsNoRoom() {
+        Map<String, Long> legacy = new HashMap<>(Map.of("a", 0L, "b", 1L, "c", 2L));
+
+        PlaylistDiff diff = PlaylistDiff.compute(legacy, List.of("a", "c", "b"));
+
+        assertTrue(diff.isRenumbered());
+        assertEquals(Map.of("a", GAP, "c", 2 * GAP, "b", 3 * GAP), diff.getUpdates());
+    }
+}
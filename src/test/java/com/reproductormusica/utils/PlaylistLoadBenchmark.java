@@ -0,0 +1,127 @@
+package com.reproductormusica.utils;
+
+import com.reproductormusica.model.Playlist;
+import com.reproductormusica.model.Song;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara el tiempo de carga de todas las playlists al arrancar: una consulta
+ * por playlist (como se hacía antes) frente a DatabaseManager.getAllPlaylists().
+ *
+ * Uso: PlaylistLoadBenchmark [playlists] [canciones por playlist]. Genera la base
+ * de datos en un directorio temporal. No forma parte de la suite de tests: se
+ * ejecuta a mano, por ejemplo con
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.reproductormusica.utils.PlaylistLoadBenchmark
+ */
+public class PlaylistLoadBenchmark {
+
+    private static final int LIBRARY_SIZE = 5000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        int playlistCount = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int songsPerPlaylist = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        Path dir = Files.createTempDirectory("playlist-benchmark");
+        String dbPath = dir.resolve("bench.db").toString();
+        DatabaseManager db = new DatabaseManager(dbPath);
+        db.initialize();
+        try {
+            populate(db, playlistCount, songsPerPlaylist);
+            System.out.println("Playlists: " + playlistCount + ", canciones por playlist: " + songsPerPlaylist);
+
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath)) {
+                // Warm up both paths before measuring
+                loadOnePerPlaylist(connection);
+                db.getAllPlaylists();
+
+                for (int round = 1; round <= ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    int slowCount = loadOnePerPlaylist(connection).size();
+                    double slow = (System.nanoTime() - start) / 1_000_000.0;
+
+                    start = System.nanoTime();
+                    int fastCount = db.getAllPlaylists().size();
+                    double fast = (System.nanoTime() - start) / 1_000_000.0;
+
+                    System.out.printf("Ronda %d: una consulta por playlist %.1f ms (%d), dos consultas %.1f ms (%d) (x%.1f)%n",
+                                      round, slow, slowCount, fast, fastCount, slow / fast);
+                }
+            }
+        } finally {
+            db.close();
+        }
+    }
+
+    private static void populate(DatabaseManager db, int playlistCount, int songsPerPlaylist) {
+        List<Song> library = new ArrayList<>();
+        for (int i = 0; i < LIBRARY_SIZE; i++) {
+            Song song = new Song("song-" + i, "Title " + i, "Artist " + (i % 200), "/music/" + i + ".mp3");
+            song.setAlbum("Album " + (i % 500));
+            library.add(song);
+        }
+        db.saveSongs(library, 500);
+
+        for (int p = 0; p < playlistCount; p++) {
+            Playlist playlist = new Playlist("Playlist " + p);
+            for (int s = 0; s < songsPerPlaylist; s++) {
+                playlist.addSong(library.get((p * 31 + s * 7) % LIBRARY_SIZE));
+            }
+            db.savePlaylist(playlist);
+        }
+    }
+
+    // The previous N+1 loading: one query for the playlists, then one per playlist
+    private static List<Playlist> loadOnePerPlaylist(Connection connection) throws Exception {
+        List<Playlist> playlists = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT * FROM playlists ORDER BY name");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                Playlist playlist = new Playlist();
+                playlist.setId(rs.getString("id"));
+                playlist.setName(rs.getString("name"));
+                playlist.setDescription(rs.getString("description"));
+                playlist.setCreatedDate(rs.getLong("created_date"));
+                playlist.setModifiedDate(rs.getLong("modified_date"));
+                playlists.add(playlist);
+            }
+        }
+        String sql = "SELECT s.* FROM songs s JOIN playlist_songs ps ON s.id = ps.song_id " +
+                     "WHERE ps.playlist_id = ? ORDER BY ps.position";
+        for (Playlist playlist : playlists) {
+            List<Song> songs = new ArrayList<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, playlist.getId());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Song song = new Song();
+                        song.setId(rs.getString("id"));
+                        song.setTitle(rs.getString("title"));
+                        song.setArtist(rs.getString("artist"));
+                        song.setAlbum(rs.getString("album"));
+                        song.setGenre(rs.getString("genre"));
+                        song.setFilePath(rs.getString("file_path"));
+                        song.setAlbumArt(rs.getString("album_art"));
+                        song.setTrackNumber(rs.getInt("track_number"));
+                        song.setYear(rs.getInt("year"));
+                        song.setFileSize(rs.getLong("file_size"));
+                        song.setFileMtime(rs.getLong("file_mtime"));
+                        song.setFileInode(rs.getString("file_inode"));
+                        songs.add(song);
+                    }
+                }
+            }
+            playlist.setSongs(songs);
+        }
+        return playlists;
+    }
+}
@@ -0,0 +1,88 @@
+package com.reproductormusica.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para SchemaMigrator
+ */
+class SchemaMigratorTest {
+
+    private Connection connection;
+    private final List<String> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private SchemaMigrator migrator() {
+        return new SchemaMigrator((version, description, done, total) ->
+            events.add(version + ":" + done + "/" + total))
+            .add(1, "Tabla", (conn, progress) -> execute(conn, "CREATE TABLE t (a INTEGER)"))
+            .add(2, "Columna", (conn, progress) -> {
+                execute(conn, "ALTER TABLE t ADD COLUMN b INTEGER");
+                progress.update(5, 10);
+            });
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    @Test
+    void testPendingStepsRunInOrderAndRecordTheVersion() throws SQLException {
+        assertEquals(2, migrator().migrate(connection));
+
+        assertEquals(2, SchemaMigrator.getUserVersion(connection));
+        assertEquals(List.of("1:0/1", "1:1/1", "2:0/1", "2:5/10", "2:1/1"), events);
+    }
+
+    @Test
+    void testCurrentSchemaRunsNothing() throws SQLException {
+        migrator().migrate(connection);
+        events.clear();
+
+        assertEquals(0, migrator().migrate(connection));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void testFailedStepIsRolledBackWithItsVersion() throws SQLException {
+        SchemaMigrator failing = migrator().add(3, "Falla", (conn, progress) -> {
+            execute(conn, "CREATE TABLE partial (x INTEGER)");
+            execute(conn, "INSERT INTO missing VALUES (1)");
+        });
+
+        assertThrows(SQLException.class, () -> failing.migrate(connection));
+
+        assertEquals(2, SchemaMigrator.getUserVersion(connection));
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master WHERE name = 'partial'")) {
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testStepsMustBeAddedInOrder() {
+        assertThrows(IllegalArgumentException.class, () -> migrator().add(2, "Repetido", (conn, progress) -> { }));
+    }
+}
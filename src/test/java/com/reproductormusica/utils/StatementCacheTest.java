@@ -0,0 +1,101 @@
+package com.reproductormusica.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para StatementCache
+ */
+class StatementCacheTest {
+
+    private Connection connection;
+    private StatementCache cache;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE t (a INTEGER, b TEXT)");
+        }
+        cache = new StatementCache(connection, StatementCache.MIN_STATEMENTS);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        cache.close();
+        connection.close();
+    }
+
+    @Test
+    void testSameSqlReusesStatementWithClearedParameters() throws SQLException {
+        PreparedStatement insert = cache.prepare("INSERT INTO t (a, b) VALUES (?, ?)");
+        insert.setInt(1, 1);
+        insert.setString(2, "uno");
+        insert.executeUpdate();
+
+        PreparedStatement again = cache.prepare("INSERT INTO t (a, b) VALUES (?, ?)");
+        assertSame(insert, again);
+        again.setInt(1, 2);
+        // The text bound before must not leak into this row
+        again.executeUpdate();
+
+        try (ResultSet rs = cache.prepare("SELECT b FROM t WHERE a = 2").executeQuery()) {
+            assertTrue(rs.next());
+            assertNull(rs.getString(1));
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedStatementIsClosed() throws SQLException {
+        PreparedStatement first = cache.prepare("SELECT 1");
+        PreparedStatement second = cache.prepare("SELECT 2");
+        cache.prepare("SELECT 1");
+        for (int i = 3; i <= StatementCache.MIN_STATEMENTS + 1; i++) {
+            cache.prepare("SELECT " + i);
+        }
+
+        assertEquals(StatementCache.MIN_STATEMENTS, cache.size());
+        assertTrue(second.isClosed());
+        assertFalse(first.isClosed());
+        assertNotSame(second, cache.prepare("SELECT 2"));
+    }
+
+    @Test
+    void testSmallLimitKeepsTheStatementsOfOneOperation() throws SQLException {
+        StatementCache small = new StatementCache(connection, 1);
+        try {
+            // A batch keeps using its statement while the operation prepares others
+            PreparedStatement insert = small.prepare("INSERT INTO t (a, b) VALUES (?, ?)");
+            insert.setInt(1, 1);
+            insert.addBatch();
+            for (int i = 0; i < 4; i++) {
+                small.prepare("SELECT " + i);
+            }
+
+            assertFalse(insert.isClosed());
+            assertArrayEquals(new int[] {1}, insert.executeBatch());
+        } finally {
+            small.close();
+        }
+    }
+
+    @Test
+    void testCloseClosesStatements() throws SQLException {
+        PreparedStatement statement = cache.prepare("SELECT 1");
+        cache.close();
+
+        assertTrue(statement.isClosed());
+        assertEquals(0, cache.size());
+        assertFalse(connection.isClosed());
+    }
+}
@@ -0,0 +1,113 @@
+package com.reproductormusica.utils;
+
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.Tag;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Compara archivos por segundo entre jaudiotagger y FastTagReader.
+ *
+ * Uso: TagReaderBenchmark [carpeta]. Sin carpeta genera un corpus sintético de
+ * MP3 y FLAC en un directorio temporal. No forma parte de la suite de tests:
+ * se ejecuta a mano, por ejemplo con
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.reproductormusica.utils.TagReaderBenchmark
+ */
+public class TagReaderBenchmark {
+
+    private static final int SYNTHETIC_FILES = 400;
+    private static final int ROUNDS = 3;
+
+    // Held in a field so the level is not lost when the logger is garbage collected
+    private static final Logger JAUDIOTAGGER_LOG = Logger.getLogger("org.jaudiotagger");
+
+    public static void main(String[] args) throws Exception {
+        JAUDIOTAGGER_LOG.setLevel(Level.OFF);
+
+        List<File> files = args.length > 0 ? collect(Paths.get(args[0])) : generateCorpus();
+        System.out.println("Archivos: " + files.size());
+
+        // Warm up both paths before measuring
+        runJaudiotagger(files);
+        runFastReader(files);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            double slow = measure(() -> runJaudiotagger(files), files.size());
+            double fast = measure(() -> runFastReader(files), files.size());
+            System.out.printf("Ronda %d: jaudiotagger %.0f archivos/s, lectura rápida %.0f archivos/s (x%.1f)%n",
+                              round, slow, fast, fast / slow);
+        }
+    }
+
+    private static double measure(Runnable run, int count) {
+        long start = System.nanoTime();
+        run.run();
+        return count / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    private static void runJaudiotagger(List<File> files) {
+        for (File file : files) {
+            try {
+                AudioFile audioFile = AudioFileIO.read(file);
+                Tag tag = audioFile.getTag();
+                if (tag != null) {
+                    tag.getFirst(FieldKey.TITLE);
+                }
+                audioFile.getAudioHeader().getTrackLength();
+            } catch (Exception e) {
+                System.err.println("Error leyendo " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void runFastReader(List<File> files) {
+        for (File file : files) {
+            FastTagReader.Result result = FastTagReader.read(file);
+            if (result != null) {
+                result.getFirst(FieldKey.TITLE);
+            }
+        }
+    }
+
+    private static List<File> collect(Path folder) throws Exception {
+        List<File> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.map(Path::toFile)
+                 .filter(file -> file.isFile() && isFastPathFormat(file.getName()))
+                 .forEach(files::add);
+        }
+        return files;
+    }
+
+    private static boolean isFastPathFormat(String name) {
+        String lower = name.toLowerCase();
+        return lower.endsWith(".mp3") || lower.endsWith(".flac");
+    }
+
+    private static List<File> generateCorpus() throws Exception {
+        Path dir = Files.createTempDirectory("tag-benchmark");
+        dir.toFile().deleteOnExit();
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < SYNTHETIC_FILES; i++) {
+            Path file = i % 2 == 0
+                ? TestAudioFiles.writeMp3(dir.resolve(i + ".mp3"), "Title " + i, "Artist", "Album",
+                                          String.valueOf(i % 20 + 1), "2000", 30, i % 4 == 0)
+                : TestAudioFiles.writeFlac(dir.resolve(i + ".flac"), "Title " + i, "Artist", "Album",
+                                           String.valueOf(i % 20 + 1), "2000", 30);
+            file.toFile().deleteOnExit();
+            files.add(file.toFile());
+        }
+        return files;
+    }
+}
@@ -0,0 +1,130 @@
+package com.reproductormusica.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Genera archivos MP3 y FLAC mínimos (cabeceras válidas y audio vacío) para tests
+ * y benchmarks de lectura de etiquetas
+ */
+public final class TestAudioFiles {
+
+    // MPEG 1 Layer III, 128 kbps, 44100 Hz, stereo, no padding
+    private static final byte[] FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00};
+    private static final int FRAME_LENGTH = 417;
+    private static final int SAMPLES_PER_FRAME = 1152;
+
+    private TestAudioFiles() {}
+
+    /**
+     * MP3 con etiqueta ID3v2.3 y, si xing es true, cabecera Xing en el primer frame
+     */
+    public static Path writeMp3(Path file, String title, String artist, String album, String track, String year,
+                                int seconds, boolean xing) throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(textFrame("TIT2", title));
+        frames.write(textFrame("TPE1", artist));
+        frames.write(textFrame("TALB", album));
+        frames.write(textFrame("TRCK", track));
+        frames.write(textFrame("TYER", year));
+        frames.write(textFrame("TCON", "(17)"));
+        frames.write(new byte[256]); // Padding
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {'I', 'D', '3', 3, 0, 0});
+        out.write(syncsafe(frames.size()));
+        frames.writeTo(out);
+
+        int frameCount = (int) Math.round(seconds * 44100.0 / SAMPLES_PER_FRAME);
+        if (xing) {
+            byte[] first = emptyFrame();
+            System.arraycopy("Xing".getBytes(StandardCharsets.ISO_8859_1), 0, first, 36, 4);
+            first[43] = 0x01; // Frame count present
+            System.arraycopy(bigEndian(frameCount), 0, first, 44, 4);
+            out.write(first);
+        }
+        for (int i = 0; i < frameCount; i++) {
+            out.write(emptyFrame());
+        }
+        return Files.write(file, out.toByteArray());
+    }
+
+    /**
+     * FLAC con STREAMINFO, un bloque PICTURE grande y VORBIS_COMMENT
+     */
+    public static Path writeFlac(Path file, String title, String artist, String album, String track, String year,
+                                 int seconds) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {'f', 'L', 'a', 'C'});
+
+        byte[] streamInfo = new byte[34];
+        int sampleRate = 44100;
+        long totalSamples = (long) seconds * sampleRate;
+        streamInfo[0] = 0x10; // Minimum block size 4096
+        streamInfo[2] = 0x10; // Maximum block size 4096
+        streamInfo[10] = (byte) (sampleRate >> 12);
+        streamInfo[11] = (byte) (sampleRate >> 4);
+        // Sample rate low bits, 2 channels, 16 bits per sample
+        streamInfo[12] = (byte) (((sampleRate & 0x0F) << 4) | (1 << 1));
+        streamInfo[13] = (byte) ((15 << 4) | (int) ((totalSamples >> 32) & 0x0F));
+        System.arraycopy(bigEndian((int) totalSamples), 0, streamInfo, 14, 4);
+        writeBlock(out, 0, false, streamInfo);
+
+        writeBlock(out, 6, false, new byte[64 * 1024]); // Album art the fast path must skip
+
+        ByteArrayOutputStream comments = new ByteArrayOutputStream();
+        byte[] vendor = "test".getBytes(StandardCharsets.UTF_8);
+        comments.write(littleEndian(vendor.length));
+        comments.write(vendor);
+        String[] entries = {"TITLE=" + title, "ARTIST=" + artist, "ALBUM=" + album,
+                            "TRACKNUMBER=" + track, "DATE=" + year};
+        comments.write(littleEndian(entries.length));
+        for (String entry : entries) {
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            comments.write(littleEndian(bytes.length));
+            comments.write(bytes);
+        }
+        writeBlock(out, 4, true, comments.toByteArray());
+        return Files.write(file, out.toByteArray());
+    }
+
+    private static byte[] emptyFrame() {
+        byte[] frame = new byte[FRAME_LENGTH];
+        System.arraycopy(FRAME_HEADER, 0, frame, 0, FRAME_HEADER.length);
+        return frame;
+    }
+
+    private static byte[] textFrame(String id, String value) throws IOException {
+        byte[] text = value.getBytes(StandardCharsets.ISO_8859_1);
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write(id.getBytes(StandardCharsets.ISO_8859_1));
+        frame.write(bigEndian(text.length + 1));
+        frame.write(new byte[] {0, 0, 0}); // Flags and ISO-8859-1 encoding
+        frame.write(text);
+        return frame.toByteArray();
+    }
+
+    private static void writeBlock(ByteArrayOutputStream out, int type, boolean last, byte[] data) throws IOException {
+        out.write((last ? 0x80 : 0) | type);
+        out.write(data.length >> 16);
+        out.write(data.length >> 8);
+        out.write(data.length);
+        out.write(data);
+    }
+
+    private static byte[] syncsafe(int value) {
+        return new byte[] {(byte) ((value >> 21) & 0x7F), (byte) ((value >> 14) & 0x7F),
+                           (byte) ((value >> 7) & 0x7F), (byte) (value & 0x7F)};
+    }
+
+    private static byte[] bigEndian(int value) {
+        return new byte[] {(byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value};
+    }
+
+    private static byte[] littleEndian(int value) {
+        return new byte[] {(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)};
+    }
+}